@@ -0,0 +1,33 @@
+package com.epam.aidial.benchmark;
+
+import com.epam.aidial.config.AppConfiguration;
+import lombok.experimental.UtilityClass;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+@UtilityClass
+public class BenchmarkConfigs {
+    /**
+     * Binds the application configuration from {@code application.yaml} the same way the application does,
+     * leaving the placeholders without defaults unresolved.
+     */
+    public AppConfiguration appConfiguration() {
+        try {
+            List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                    .load("application", new ClassPathResource("application.yaml"));
+            Binder binder = new Binder(
+                    ConfigurationPropertySources.from(sources), new PropertySourcesPlaceholdersResolver(sources));
+            return binder.bind("app", AppConfiguration.class).get();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.epam.aidial.config;
+
+import com.epam.aidial.benchmark.BenchmarkConfigs;
+import com.epam.aidial.kubernetes.knative.V1Service;
+import io.kubernetes.client.openapi.models.V1Job;
+import io.kubernetes.client.openapi.models.V1Secret;
+import io.kubernetes.client.util.Yaml;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares copying the manifest templates from their JSON trees with parsing their YAML dumps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppConfigurationBenchmark {
+    private AppConfiguration appConfiguration;
+    private String secretConfigYaml;
+    private String jobConfigYaml;
+    private String serviceConfigYaml;
+
+    @Setup
+    public void setUp() {
+        appConfiguration = BenchmarkConfigs.appConfiguration();
+        secretConfigYaml = Yaml.dump(appConfiguration.getSecretConfig());
+        jobConfigYaml = Yaml.dump(appConfiguration.getJobConfig());
+        serviceConfigYaml = Yaml.dump(appConfiguration.getServiceConfig());
+    }
+
+    @Benchmark
+    public V1Secret cloneSecretConfig() {
+        return appConfiguration.cloneSecretConfig();
+    }
+
+    @Benchmark
+    public V1Secret loadSecretConfigYaml() {
+        return Yaml.loadAs(secretConfigYaml, V1Secret.class);
+    }
+
+    @Benchmark
+    public V1Job cloneJobConfig() {
+        return appConfiguration.cloneJobConfig();
+    }
+
+    @Benchmark
+    public V1Job loadJobConfigYaml() {
+        return Yaml.loadAs(jobConfigYaml, V1Job.class);
+    }
+
+    @Benchmark
+    public V1Service cloneServiceConfig() {
+        return appConfiguration.cloneServiceConfig();
+    }
+
+    @Benchmark
+    public V1Service loadServiceConfigYaml() {
+        return Yaml.loadAs(serviceConfigYaml, V1Service.class);
+    }
+}
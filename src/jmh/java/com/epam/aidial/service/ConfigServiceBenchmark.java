@@ -0,0 +1,75 @@
+package com.epam.aidial.service;
+
+import com.epam.aidial.benchmark.BenchmarkConfigs;
+import com.epam.aidial.config.AppConfiguration;
+import com.epam.aidial.kubernetes.knative.V1Service;
+import com.epam.aidial.util.RetryPolicy;
+import io.kubernetes.client.openapi.models.V1Job;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering of the build job and the application service manifests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigServiceBenchmark {
+    private static final String NAME = "benchmark-app";
+
+    private ConfigService configService;
+    private Map<String, String> env;
+
+    @Setup
+    public void setUp() {
+        AppConfiguration appConfiguration = BenchmarkConfigs.appConfiguration();
+        RegistryService registryService = new RegistryService(
+                new OkHttpClient(),
+                new RetryPolicy(0, Duration.ZERO, Duration.ZERO),
+                new SimpleMeterRegistry(),
+                "registry.example.com",
+                URI.create("https"),
+                "app-%s",
+                "latest",
+                10,
+                30,
+                300,
+                10000);
+        configService = new ConfigService(registryService, appConfiguration, "template", "builder", "app-container");
+        configService.initialize();
+
+        env = new LinkedHashMap<>();
+        for (int i = 0; i < 20; ++i) {
+            env.put("ENV_VAR_" + i, "value-" + i);
+        }
+    }
+
+    @Benchmark
+    public V1Job buildJobConfig() {
+        return configService.buildJobConfig(NAME, "files/bucket/sources/", "python3.11", null);
+    }
+
+    @Benchmark
+    public V1Service appServiceConfig() {
+        return configService.appServiceConfig(NAME, env);
+    }
+}
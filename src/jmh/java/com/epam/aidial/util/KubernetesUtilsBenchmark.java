@@ -0,0 +1,57 @@
+package com.epam.aidial.util;
+
+import com.epam.aidial.kubernetes.knative.V1Service;
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.models.V1Job;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures extracting the state of a job and a service recorded from a cluster.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KubernetesUtilsBenchmark {
+    private V1Job completedJob;
+    private V1Service readyService;
+
+    @Setup
+    public void setUp() throws IOException {
+        completedJob = read("completed-job", V1Job.class);
+        readyService = read("ready-service", V1Service.class);
+    }
+
+    @Benchmark
+    public boolean extractJobCompletionStatus() {
+        return KubernetesUtils.extractJobCompletionStatus(completedJob);
+    }
+
+    @Benchmark
+    public String extractServiceUrl() {
+        return KubernetesUtils.extractServiceUrl(readyService);
+    }
+
+    private static <T> T read(String name, Class<T> clazz) throws IOException {
+        try (InputStream stream = KubernetesUtilsBenchmark.class.getResourceAsStream("/recorded/%s.json".formatted(name))) {
+            return JSON.getGson().fromJson(IOUtils.toString(stream, StandardCharsets.UTF_8), clazz);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.epam.aidial.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures truncating build logs of several megabytes to the error message limits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextUtilsBenchmark {
+    @Param({"1", "8"})
+    private int megabytes;
+
+    @Param({"20"})
+    private int maxLines;
+
+    @Param({"1000", "100000"})
+    private int maxChars;
+
+    private String log;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder(megabytes << 20);
+        for (int i = 0; builder.length() < megabytes << 20; ++i) {
+            builder.append("INFO[%07d] Step %d/%d : RUN pip install --no-cache-dir -r requirements.txt".formatted(i, i % 30, 30));
+            // Blank lines are skipped when counting lines
+            builder.append(i % 10 == 0 ? "\n\n" : "\n");
+        }
+        log = builder.toString();
+    }
+
+    @Benchmark
+    public String truncateText() {
+        return TextUtils.truncateText(log, maxLines, maxChars);
+    }
+}
@@ -0,0 +1,85 @@
+package com.epam.aidial.util.mapping;
+
+import io.kubernetes.client.openapi.models.V1Container;
+import io.kubernetes.client.openapi.models.V1EnvVar;
+import io.kubernetes.client.openapi.models.V1PodSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.epam.aidial.util.mapping.Mappers.CONTAINER_ENV_FIELD;
+import static com.epam.aidial.util.mapping.Mappers.CONTAINER_NAME;
+import static com.epam.aidial.util.mapping.Mappers.ENV_VAR_NAME;
+import static com.epam.aidial.util.mapping.Mappers.POD_CONTAINERS_FIELD;
+
+/**
+ * Compares looking up a container env var with the mapping chain and with a compiled plan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListMapperBenchmark {
+    @Param({"5", "50"})
+    private int size;
+
+    private V1PodSpec podSpec;
+    private String lastContainer;
+    private String lastEnvVar;
+    private MappingPlan<V1PodSpec, V1EnvVar> plan;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        podSpec = podSpec(size);
+        lastContainer = "container-" + (size - 1);
+        lastEnvVar = "ENV_VAR_" + (size - 1);
+        plan = MappingPlan.compile(podSpec(size))
+                .getList(POD_CONTAINERS_FIELD, CONTAINER_NAME)
+                .get(lastContainer)
+                .getList(CONTAINER_ENV_FIELD, ENV_VAR_NAME)
+                .get(lastEnvVar);
+    }
+
+    @Benchmark
+    public V1EnvVar listMapper() {
+        return new MappingChain<>(podSpec)
+                .getList(POD_CONTAINERS_FIELD, CONTAINER_NAME)
+                .get(lastContainer)
+                .getList(CONTAINER_ENV_FIELD, ENV_VAR_NAME)
+                .get(lastEnvVar)
+                .data();
+    }
+
+    @Benchmark
+    public V1EnvVar mappingPlan() {
+        return plan.apply(podSpec).data();
+    }
+
+    private static V1PodSpec podSpec(int size) {
+        List<V1Container> containers = new ArrayList<>();
+        for (int i = 0; i < size; ++i) {
+            List<V1EnvVar> env = new ArrayList<>();
+            for (int j = 0; j < size; ++j) {
+                env.add(new V1EnvVar().name("ENV_VAR_" + j).value("value-" + j));
+            }
+            containers.add(new V1Container().name("container-" + i).env(env));
+        }
+
+        return new V1PodSpec().containers(containers);
+    }
+}
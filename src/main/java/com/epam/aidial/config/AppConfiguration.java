@@ -1,61 +1,77 @@
 package com.epam.aidial.config;
 
 import com.epam.aidial.kubernetes.knative.V1Service;
+import com.google.gson.JsonElement;
+import io.kubernetes.client.openapi.JSON;
 import io.kubernetes.client.openapi.models.V1Job;
 import io.kubernetes.client.openapi.models.V1Secret;
-import io.kubernetes.client.util.Yaml;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.Map;
 
+/**
+ * Application settings.
+ *
+ * <p>Manifest templates are kept as JSON trees, so that a copy is built from the tree per request
+ * without parsing the template text again.
+ */
 @Component
 @ConfigurationProperties(prefix = "app")
 public class AppConfiguration {
     @Getter
     private V1Secret secretConfig;
-    private String secretConfigString;
+    private JsonElement secretConfigTree;
 
     @Getter
     private V1Job jobConfig;
-    private String jobConfigString;
+    private JsonElement jobConfigTree;
 
     @Getter
     private V1Service serviceConfig;
-    private String serviceConfigString;
+    private JsonElement serviceConfigTree;
 
     @Getter
     @Setter
     private Map<String, RuntimeConfiguration> runtimes;
 
+    @Getter
+    @Setter
+    private Map<String, HttpClientConfiguration> httpClients;
+
+    @Getter
+    @Setter
+    private Map<String, Integer> tenantWeights = Map.of();
+
     public void setSecretConfig(V1Secret secretConfig) {
         this.secretConfig = secretConfig;
-        this.secretConfigString = Yaml.dump(secretConfig);
+        this.secretConfigTree = JSON.getGson().toJsonTree(secretConfig);
     }
 
     public void setJobConfig(V1Job jobConfig) {
         this.jobConfig = jobConfig;
-        this.jobConfigString = Yaml.dump(jobConfig);
+        this.jobConfigTree = JSON.getGson().toJsonTree(jobConfig);
     }
 
     public void setServiceConfig(V1Service serviceConfig) {
         this.serviceConfig = serviceConfig;
-        this.serviceConfigString = Yaml.dump(serviceConfig);
+        this.serviceConfigTree = JSON.getGson().toJsonTree(serviceConfig);
     }
 
     public V1Secret cloneSecretConfig() {
-        return Yaml.loadAs(secretConfigString, V1Secret.class);
+        return JSON.getGson().fromJson(secretConfigTree, V1Secret.class);
     }
 
     public V1Job cloneJobConfig() {
-        return Yaml.loadAs(jobConfigString, V1Job.class);
+        return JSON.getGson().fromJson(jobConfigTree, V1Job.class);
     }
 
     public V1Service cloneServiceConfig() {
-        return Yaml.loadAs(serviceConfigString, V1Service.class);
+        return JSON.getGson().fromJson(serviceConfigTree, V1Service.class);
     }
 
     @Data
@@ -63,4 +79,17 @@ public class AppConfiguration {
         private String image;
         private String profile;
     }
+
+    @Data
+    public static class HttpClientConfiguration {
+        private int maxRequests;
+        private int maxRequestsPerHost;
+        private int maxIdleConnections;
+        private Duration keepAlive;
+        private boolean http2;
+        private Duration connectTimeout;
+        // Zero means no timeout, which long-running watches and log streams rely on
+        private Duration readTimeout;
+        private Duration writeTimeout;
+    }
 }
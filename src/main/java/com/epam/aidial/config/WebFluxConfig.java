@@ -1,33 +1,120 @@
 package com.epam.aidial.config;
 
 import com.epam.aidial.util.KubernetesUtils;
+import com.epam.aidial.util.RegistryTokenAuthenticator;
+import com.epam.aidial.util.RetryPolicy;
 import io.kubernetes.client.openapi.ApiClient;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class WebFluxConfig {
     @Bean
     public ApiClient buildKubeClient(
             @Value("${app.kube-config}") String configPath,
-            @Value("${app.build-context:#{null}}") String context) throws IOException {
-        return KubernetesUtils.createClient(configPath, context);
+            @Value("${app.build-context:#{null}}") String context,
+            AppConfiguration appConfiguration,
+            MeterRegistry meterRegistry) throws IOException {
+        ApiClient client = KubernetesUtils.createClient(configPath, context);
+        return client.setHttpClient(configureHttpClient("build", client.getHttpClient(), appConfiguration, meterRegistry));
     }
 
     @Bean
     public ApiClient deployKubeClient(
             @Value("${app.kube-config}") String configPath,
-            @Value("${app.deploy-context:#{null}}") String context) throws IOException {
-        return KubernetesUtils.createClient(configPath, context);
+            @Value("${app.deploy-context:#{null}}") String context,
+            AppConfiguration appConfiguration,
+            MeterRegistry meterRegistry) throws IOException {
+        ApiClient client = KubernetesUtils.createClient(configPath, context);
+        return client.setHttpClient(configureHttpClient("deploy", client.getHttpClient(), appConfiguration, meterRegistry));
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler kubernetesScheduler(@Value("${app.kubernetes-scheduler}") String type) {
+        return switch (type) {
+            case "bounded-elastic" -> Schedulers.boundedElastic();
+            case "virtual-threads" -> Schedulers.fromExecutorService(
+                    Executors.newVirtualThreadPerTaskExecutor(), "kubernetes-virtual-threads");
+            default -> throw new IllegalArgumentException("Unsupported Kubernetes scheduler: %s".formatted(type));
+        };
     }
 
     @Bean
-    public OkHttpClient okHttpClient() {
-        return new OkHttpClient.Builder()
+    public RetryPolicy retryPolicy(
+            @Value("${app.retry-max-attempts}") int maxAttempts,
+            @Value("${app.retry-min-backoff-ms}") long minBackoffMs,
+            @Value("${app.retry-max-backoff-ms}") long maxBackoffMs) {
+        return new RetryPolicy(maxAttempts - 1, Duration.ofMillis(minBackoffMs), Duration.ofMillis(maxBackoffMs));
+    }
+
+    @Bean
+    public OkHttpClient okHttpClient(
+            @Value("${app.docker-registry-username:#{null}}") String username,
+            @Value("${app.docker-registry-password:#{null}}") String password,
+            AppConfiguration appConfiguration,
+            MeterRegistry meterRegistry) {
+        OkHttpClient client = configureHttpClient("registry", new OkHttpClient(), appConfiguration, meterRegistry);
+        // Token requests share the connection pool and limits, but must not be authenticated themselves
+        RegistryTokenAuthenticator authenticator = new RegistryTokenAuthenticator(client, username, password);
+        return client.newBuilder()
+                .authenticator(authenticator)
+                .addInterceptor(authenticator)
+                .build();
+    }
+
+    @Bean
+    public OkHttpClient dialHttpClient(AppConfiguration appConfiguration, MeterRegistry meterRegistry) {
+        return configureHttpClient("dial", new OkHttpClient(), appConfiguration, meterRegistry);
+    }
+
+    /**
+     * Applies the configured limits to a copy of the client, keeping its authentication and TLS settings.
+     */
+    private static OkHttpClient configureHttpClient(
+            String name, OkHttpClient client, AppConfiguration appConfiguration, MeterRegistry meterRegistry) {
+        AppConfiguration.HttpClientConfiguration config = appConfiguration.getHttpClients().get(name);
+        if (config == null) {
+            throw new IllegalArgumentException("Missing configuration for HTTP client %s".formatted(name));
+        }
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(config.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
+        Gauge.builder("app.http.client.queued", dispatcher, Dispatcher::queuedCallsCount)
+                .description("Number of asynchronous calls waiting for a dispatcher slot")
+                .tag("client", name)
+                .register(meterRegistry);
+        Gauge.builder("app.http.client.running", dispatcher, Dispatcher::runningCallsCount)
+                .description("Number of calls being executed")
+                .tag("client", name)
+                .register(meterRegistry);
+
+        List<Protocol> protocols = config.isHttp2()
+                ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                : List.of(Protocol.HTTP_1_1);
+        return client.newBuilder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(
+                        config.getMaxIdleConnections(), config.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS))
+                .protocols(protocols)
+                .connectTimeout(config.getConnectTimeout())
+                .readTimeout(config.getReadTimeout())
+                .writeTimeout(config.getWriteTimeout())
                 .build();
     }
 }
@@ -1,26 +1,37 @@
 package com.epam.aidial.controller;
 
+import com.epam.aidial.dto.CancelOperationResponseDto;
 import com.epam.aidial.dto.CreateDeploymentRequestDto;
 import com.epam.aidial.dto.CreateDeploymentResponseDto;
 import com.epam.aidial.dto.DeleteImageResponseDto;
 import com.epam.aidial.dto.GetApplicationLogsResponseDto;
+import com.epam.aidial.dto.OperationDto;
+import com.epam.aidial.dto.OperationProgressDto;
 import com.epam.aidial.service.DeployService;
 import com.epam.aidial.service.HeartbeatService;
+import com.epam.aidial.service.OperationScheduler;
+import com.epam.aidial.service.OperationService;
 import com.epam.aidial.util.SseUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.annotation.Nullable;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -31,16 +42,31 @@ import java.util.Objects;
 public class DeploymentController {
     private final DeployService deployService;
     private final HeartbeatService heartbeatService;
+    private final OperationScheduler operationScheduler;
+    private final OperationService operationService;
 
     @PostMapping(value = "{name}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<ServerSentEvent<Object>> create(
+            @Nullable @RequestHeader("${app.tenant-header}") String tenant,
             @PathVariable("name") String name,
             @RequestBody CreateDeploymentRequestDto request) {
-        Mono<CreateDeploymentResponseDto> result = deployService.deploy(name, Objects.requireNonNullElse(request.env(), Map.of()))
-                .doOnError(e -> log.error("Failed to deploy service {}", name, e))
-                .map(CreateDeploymentResponseDto::new);
+        return heartbeatService.setupStreamHeartbeats(scheduleDeployment(tenant, name, request));
+    }
 
-        return heartbeatService.setupHeartbeats(SseUtils.mapToSseEvent(result));
+    @PostMapping(value = "{name}", params = "async=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<OperationDto>> createAsync(
+            @Nullable @RequestHeader("${app.tenant-header}") String tenant,
+            @PathVariable("name") String name,
+            @RequestBody CreateDeploymentRequestDto request) {
+        return Mono.fromSupplier(() -> operationService.start(
+                        OperationScheduler.OperationType.DEPLOY, name, scheduleDeployment(tenant, name, request)))
+                .map(OperationController::accepted);
+    }
+
+    @PostMapping("{name}/cancel")
+    public Mono<CancelOperationResponseDto> cancel(@PathVariable("name") String name) {
+        return Mono.fromSupplier(() -> new CancelOperationResponseDto(
+                operationScheduler.cancel(OperationScheduler.OperationType.DEPLOY, name)));
     }
 
     @DeleteMapping(value = "{name}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
@@ -52,10 +78,50 @@ public class DeploymentController {
         return heartbeatService.setupHeartbeats(SseUtils.mapToSseEvent(result));
     }
 
+    @GetMapping(value = "{name}/logs/follow", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> followLogs(@PathVariable("name") String name) {
+        Flux<ServerSentEvent<Object>> events = deployService.followLogs(name)
+                .doOnError(e -> log.error("Failed to follow logs for {}", name, e))
+                .map(SseUtils::log);
+
+        return heartbeatService.setupStreamHeartbeats(SseUtils.mapToSseEvents(events));
+    }
+
     @GetMapping(value = "{name}/logs")
-    public Mono<GetApplicationLogsResponseDto> logs(@PathVariable("name") String name) {
-        return deployService.logs(name)
+    public Mono<GetApplicationLogsResponseDto> logs(
+            @PathVariable("name")
+            String name,
+            @Nullable
+            @RequestParam(value = "sinceTime", required = false)
+            Instant sinceTime,
+            @Nullable
+            @RequestParam(value = "sinceSeconds", required = false)
+            Integer sinceSeconds,
+            @Nullable
+            @RequestParam(value = "tailLines", required = false)
+            Integer tailLines,
+            @Nullable
+            @RequestParam(value = "limitBytes", required = false)
+            Integer limitBytes,
+            @Nullable
+            @RequestParam(value = "cursor", required = false)
+            List<String> cursors) {
+        DeployService.LogParameters logParameters = new DeployService.LogParameters(
+                sinceTime, sinceSeconds, tailLines, limitBytes, Objects.requireNonNullElse(cursors, List.of()));
+        return deployService.logs(name, logParameters)
                 .map(GetApplicationLogsResponseDto::new)
                 .doOnError(e -> log.error("Failed to retrieve logs for {}", name, e));
     }
+
+    private Flux<ServerSentEvent<Object>> scheduleDeployment(@Nullable String tenant, String name, CreateDeploymentRequestDto request) {
+        Map<String, String> env = Objects.requireNonNullElse(request.env(), Map.of());
+        return operationScheduler.schedule(
+                OperationScheduler.OperationType.DEPLOY,
+                Objects.requireNonNullElse(tenant, OperationScheduler.DEFAULT_TENANT),
+                name,
+                new DeployService.DeployParameters(name, env),
+                () -> SseUtils.<OperationProgressDto>mapToSseEventsWithProgress(progress -> deployService.deploy(name, env, progress)
+                        .doOnError(e -> log.error("Failed to deploy service {}", name, e))
+                        .map(CreateDeploymentResponseDto::new)));
+    }
 }
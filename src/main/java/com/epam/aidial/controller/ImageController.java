@@ -1,16 +1,24 @@
 package com.epam.aidial.controller;
 
+import com.epam.aidial.dto.CancelOperationResponseDto;
 import com.epam.aidial.dto.CreateImageRequestDto;
 import com.epam.aidial.dto.CreateImageResponseDto;
 import com.epam.aidial.dto.DeleteImageResponseDto;
+import com.epam.aidial.dto.DeleteUnusedImagesResponseDto;
+import com.epam.aidial.dto.OperationDto;
+import com.epam.aidial.dto.OperationProgressDto;
 import com.epam.aidial.service.BuildService;
 import com.epam.aidial.service.HeartbeatService;
+import com.epam.aidial.service.ImageCleanupService;
+import com.epam.aidial.service.OperationScheduler;
+import com.epam.aidial.service.OperationService;
 import com.epam.aidial.util.SseUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -18,6 +26,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -33,7 +42,10 @@ public class ImageController {
     private static final String AUTHORIZATION_PREFIX = "Bearer ";
 
     private final BuildService buildService;
+    private final ImageCleanupService imageCleanupService;
     private final HeartbeatService heartbeatService;
+    private final OperationScheduler operationScheduler;
+    private final OperationService operationService;
 
     @Value("${app.default-runtime}")
     private final String pythonDefaultRuntime;
@@ -46,22 +58,44 @@ public class ImageController {
             @Nullable
             @RequestHeader("Authorization")
             String authorization,
+            @Nullable
+            @RequestHeader("${app.tenant-header}")
+            String tenant,
             @PathVariable("name")
             String name,
+            @RequestParam(value = "followLogs", defaultValue = "false")
+            boolean followLogs,
             @RequestBody
             CreateImageRequestDto request) {
-        String jwt = StringUtils.startsWithIgnoreCase(authorization, AUTHORIZATION_PREFIX)
-                ? authorization.substring(AUTHORIZATION_PREFIX.length()).trim()
-                : null;
+        return heartbeatService.setupStreamHeartbeats(scheduleBuild(apiKey, authorization, tenant, name, followLogs, request));
+    }
 
-        String runtime = Objects.requireNonNullElse(request.runtime(), pythonDefaultRuntime);
-        BuildService.BuildParameters buildParameters = new BuildService.BuildParameters(
-                name, request.sources(), apiKey, jwt, runtime);
-        Mono<CreateImageResponseDto> result = buildService.build(buildParameters)
-                .doOnError(e -> log.error("Failed to create image {}", name, e))
-                .map(CreateImageResponseDto::new);
+    @PostMapping(value = "{name}", params = "async=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<OperationDto>> createAsync(
+            @Nullable
+            @RequestHeader("api-key")
+            String apiKey,
+            @Nullable
+            @RequestHeader("Authorization")
+            String authorization,
+            @Nullable
+            @RequestHeader("${app.tenant-header}")
+            String tenant,
+            @PathVariable("name")
+            String name,
+            @RequestParam(value = "followLogs", defaultValue = "false")
+            boolean followLogs,
+            @RequestBody
+            CreateImageRequestDto request) {
+        return Mono.fromSupplier(() -> operationService.start(
+                        OperationScheduler.OperationType.BUILD, name, scheduleBuild(apiKey, authorization, tenant, name, followLogs, request)))
+                .map(OperationController::accepted);
+    }
 
-        return heartbeatService.setupHeartbeats(SseUtils.mapToSseEvent(result));
+    @PostMapping("{name}/cancel")
+    public Mono<CancelOperationResponseDto> cancel(@PathVariable("name") String name) {
+        return Mono.fromSupplier(() -> new CancelOperationResponseDto(
+                operationScheduler.cancel(OperationScheduler.OperationType.BUILD, name)));
     }
 
     @DeleteMapping(value = "{name}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
@@ -72,4 +106,48 @@ public class ImageController {
 
         return heartbeatService.setupHeartbeats(SseUtils.mapToSseEvent(result));
     }
+
+    @DeleteMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> deleteUnused(
+            @RequestParam(value = "dryRun", defaultValue = "false") boolean dryRun) {
+        Flux<ServerSentEvent<Object>> events = imageCleanupService.deleteUnusedImages(dryRun)
+                .doOnError(e -> log.error("Failed to delete unused images", e))
+                // Publish to report the progress and sum it up from a single cleanup
+                .publish(progress -> Flux.merge(
+                        progress.map(SseUtils::progress),
+                        progress.reduce(new DeleteUnusedImagesResponseDto(0, 0, 0), DeleteUnusedImagesResponseDto::add)
+                                .map(SseUtils::result)));
+
+        return heartbeatService.setupStreamHeartbeats(SseUtils.mapToSseEvents(events));
+    }
+
+    private Flux<ServerSentEvent<Object>> scheduleBuild(
+            @Nullable String apiKey, @Nullable String authorization, @Nullable String tenant, String name, boolean followLogs,
+            CreateImageRequestDto request) {
+        String jwt = StringUtils.startsWithIgnoreCase(authorization, AUTHORIZATION_PREFIX)
+                ? authorization.substring(AUTHORIZATION_PREFIX.length()).trim()
+                : null;
+
+        String runtime = Objects.requireNonNullElse(request.runtime(), pythonDefaultRuntime);
+        BuildService.BuildParameters buildParameters = new BuildService.BuildParameters(
+                name, request.sources(), apiKey, jwt, runtime);
+        Flux<ServerSentEvent<Object>> events = operationScheduler.schedule(
+                OperationScheduler.OperationType.BUILD,
+                Objects.requireNonNullElse(tenant, OperationScheduler.DEFAULT_TENANT),
+                name,
+                buildParameters.withoutCredentials(),
+                () -> SseUtils.<OperationProgressDto>mapToSseEventsWithProgress(progress -> buildService.build(buildParameters, progress)
+                        .doOnError(e -> log.error("Failed to create image {}", name, e))
+                        .map(CreateImageResponseDto::new)));
+        if (!followLogs) {
+            return events;
+        }
+
+        // Each caller follows the logs on its own since identical builds share the events, the logs stop with the build
+        return events.publish(build -> Flux.merge(
+                build,
+                buildService.followLogs(name)
+                        .map(SseUtils::log)
+                        .takeUntilOther(build.then())));
+    }
 }
@@ -0,0 +1,47 @@
+package com.epam.aidial.controller;
+
+import com.epam.aidial.dto.OperationDto;
+import com.epam.aidial.service.HeartbeatService;
+import com.epam.aidial.service.OperationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.annotation.Nullable;
+
+import java.net.URI;
+
+@RestController
+@RequestMapping("/v1/operations")
+@RequiredArgsConstructor
+public class OperationController {
+    private static final String OPERATIONS_PATH = "/v1/operations/";
+
+    private final OperationService operationService;
+    private final HeartbeatService heartbeatService;
+
+    @GetMapping("{id}")
+    public Mono<OperationDto> get(@PathVariable("id") String id) {
+        return Mono.fromSupplier(() -> operationService.get(id));
+    }
+
+    @GetMapping(value = "{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> events(
+            @PathVariable("id") String id,
+            @Nullable @RequestHeader("Last-Event-ID") String lastEventId) {
+        return Flux.defer(() -> heartbeatService.setupStreamHeartbeats(operationService.events(id, lastEventId)));
+    }
+
+    static ResponseEntity<OperationDto> accepted(OperationDto operation) {
+        return ResponseEntity.accepted()
+                .location(URI.create(OPERATIONS_PATH + operation.id()))
+                .body(operation);
+    }
+}
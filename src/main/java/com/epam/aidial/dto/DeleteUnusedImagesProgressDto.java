@@ -0,0 +1,6 @@
+package com.epam.aidial.dto;
+
+import reactor.util.annotation.Nullable;
+
+public record DeleteUnusedImagesProgressDto(String name, boolean deleted, @Nullable String error, int processed, int total) {
+}
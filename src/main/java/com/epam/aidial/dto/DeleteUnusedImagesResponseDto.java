@@ -0,0 +1,10 @@
+package com.epam.aidial.dto;
+
+public record DeleteUnusedImagesResponseDto(int unused, int deleted, int failed) {
+    public DeleteUnusedImagesResponseDto add(DeleteUnusedImagesProgressDto progress) {
+        return new DeleteUnusedImagesResponseDto(
+                unused + 1,
+                deleted + (progress.deleted() ? 1 : 0),
+                failed + (progress.error() == null ? 0 : 1));
+    }
+}
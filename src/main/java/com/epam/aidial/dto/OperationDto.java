@@ -0,0 +1,23 @@
+package com.epam.aidial.dto;
+
+import com.epam.aidial.service.OperationScheduler;
+import reactor.util.annotation.Nullable;
+
+import java.time.Instant;
+
+public record OperationDto(
+        String id,
+        OperationScheduler.OperationType type,
+        String name,
+        Status status,
+        @Nullable Object result,
+        @Nullable String error,
+        Instant createdAt,
+        @Nullable Instant completedAt) {
+
+    public enum Status {
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+}
@@ -0,0 +1,23 @@
+package com.epam.aidial.dto;
+
+import java.time.Instant;
+
+/**
+ * Phase reached by a build or a deployment.
+ *
+ * @param timestamp when the phase has been reached, as reported by Kubernetes where available
+ * @param elapsedMs time since the operation has started
+ */
+public record OperationProgressDto(Phase phase, Instant timestamp, long elapsedMs) {
+
+    public enum Phase {
+        SECRET_CREATED,
+        JOB_CREATED,
+        POD_SCHEDULED,
+        SOURCES_DOWNLOADED,
+        BUILD_STARTED,
+        IMAGE_PUSHED,
+        REVISION_CREATED,
+        READY
+    }
+}
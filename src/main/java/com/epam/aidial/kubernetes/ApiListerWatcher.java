@@ -0,0 +1,33 @@
+package com.epam.aidial.kubernetes;
+
+import io.kubernetes.client.common.KubernetesListObject;
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.informer.ListerWatcher;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.util.CallGenerator;
+import io.kubernetes.client.util.CallGeneratorParams;
+import io.kubernetes.client.util.Watch;
+import io.kubernetes.client.util.Watchable;
+import lombok.RequiredArgsConstructor;
+
+import java.lang.reflect.Type;
+
+@RequiredArgsConstructor
+public class ApiListerWatcher<T extends KubernetesObject, L extends KubernetesListObject> implements ListerWatcher<T, L> {
+    private final ApiClient apiClient;
+    private final CallGenerator callGenerator;
+    private final Type listType;
+    private final Type watchType;
+
+    @Override
+    public L list(CallGeneratorParams params) throws ApiException {
+        return apiClient.<L>execute(callGenerator.generate(params), listType)
+                .getData();
+    }
+
+    @Override
+    public Watchable<T> watch(CallGeneratorParams params) throws ApiException {
+        return Watch.createWatch(apiClient, callGenerator.generate(params), watchType);
+    }
+}
@@ -0,0 +1,127 @@
+package com.epam.aidial.kubernetes;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the rate of Kubernetes API calls of a client.
+ *
+ * <p>Calls waiting for a token are served in the order of their priority,
+ * so that interactive operations don't wait behind bulk cleanups and log reads.
+ */
+public class ApiRateLimiter {
+    private static final String QUEUED_METRIC = "app.kubernetes.rate-limiter.queued";
+
+    private final double permitsPerNano;
+    private final double burst;
+    private final Map<Priority, Queue<Waiter>> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, Timer> queuedTimers = new EnumMap<>(Priority.class);
+    private final Scheduler scheduler = Schedulers.parallel();
+    private double tokens;
+    private long refilledAt;
+    private boolean drainScheduled;
+
+    /**
+     * Creates a limiter.
+     *
+     * @param permitsPerSecond rate at which tokens are added, a non-positive value disables the limiter
+     * @param burst maximum number of tokens, i.e. calls that can be made at once after an idle period
+     */
+    public ApiRateLimiter(String clientName, double permitsPerSecond, int burst, MeterRegistry meterRegistry) {
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(burst, 1);
+        this.tokens = this.burst;
+        this.refilledAt = scheduler.now(TimeUnit.NANOSECONDS);
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+            queuedTimers.put(priority, Timer.builder(QUEUED_METRIC)
+                    .description("Time Kubernetes API calls wait for the rate limiter")
+                    .tag("client", clientName)
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Completes when a call of the given priority is allowed to proceed.
+     */
+    public Mono<Void> acquire(Priority priority) {
+        if (permitsPerNano <= 0) {
+            return Mono.empty();
+        }
+
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(priority, sink, scheduler.now(TimeUnit.NANOSECONDS));
+            sink.onCancel(() -> remove(waiter));
+            synchronized (this) {
+                queues.get(priority).add(waiter);
+            }
+            drain();
+        });
+    }
+
+    private synchronized void remove(Waiter waiter) {
+        queues.get(waiter.priority()).remove(waiter);
+    }
+
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        long now = scheduler.now(TimeUnit.NANOSECONDS);
+        synchronized (this) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerNano);
+            refilledAt = now;
+            for (Priority priority : Priority.values()) {
+                Queue<Waiter> queue = queues.get(priority);
+                while (tokens >= 1 && !queue.isEmpty()) {
+                    tokens -= 1;
+                    granted.add(queue.poll());
+                }
+            }
+
+            if (!drainScheduled && queues.values().stream().anyMatch(queue -> !queue.isEmpty())) {
+                drainScheduled = true;
+                long delay = (long) Math.ceil((1 - tokens) / permitsPerNano);
+                scheduler.schedule(this::scheduledDrain, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        // Complete outside the lock since completion runs the calls
+        for (Waiter waiter : granted) {
+            queuedTimers.get(waiter.priority()).record(now - waiter.queuedAt(), TimeUnit.NANOSECONDS);
+            waiter.sink().success();
+        }
+    }
+
+    private void scheduledDrain() {
+        synchronized (this) {
+            drainScheduled = false;
+        }
+        drain();
+    }
+
+    public enum Priority {
+        /**
+         * Calls a user is waiting for, e.g. creating and watching resources.
+         */
+        INTERACTIVE,
+        /**
+         * Calls that can be delayed, e.g. deletes and log reads.
+         */
+        BACKGROUND
+    }
+
+    private record Waiter(Priority priority, MonoSink<Void> sink, long queuedAt) {
+    }
+}
@@ -1,43 +1,65 @@
 package com.epam.aidial.kubernetes;
 
+import com.epam.aidial.kubernetes.ApiRateLimiter.Priority;
 import com.epam.aidial.kubernetes.knative.V1Service;
+import com.epam.aidial.kubernetes.knative.V1ServiceList;
+import com.epam.aidial.util.CircuitBreaker;
 import com.epam.aidial.util.KubernetesUtils;
-import com.google.gson.reflect.TypeToken;
+import com.epam.aidial.util.RetryPolicy;
+import io.kubernetes.client.common.KubernetesListObject;
 import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.apis.BatchV1Api;
 import io.kubernetes.client.openapi.apis.CoreV1Api;
 import io.kubernetes.client.openapi.apis.CustomObjectsApi;
 import io.kubernetes.client.openapi.models.V1Job;
+import io.kubernetes.client.openapi.models.V1JobList;
 import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.openapi.models.V1Pod;
 import io.kubernetes.client.openapi.models.V1PodList;
 import io.kubernetes.client.openapi.models.V1Secret;
+import io.kubernetes.client.openapi.models.V1SecretList;
 import io.kubernetes.client.openapi.models.V1Status;
 import io.kubernetes.client.util.ModelMapper;
-import io.kubernetes.client.util.Watch;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.scheduler.Scheduler;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RequiredArgsConstructor
 public class KubernetesClient {
-    private static final String SERVICES = "services";
-    private static final TypeToken<Watch.Response<V1Job>> JOB_TYPE_TOKEN = new TypeToken<>() {
-    };
-    private static final TypeToken<Watch.Response<V1Service>> SERVICE_TYPE_TOKEN = new TypeToken<>() {
-    };
+    static final String SERVICES = "services";
+    private static final String JOB_NAME_LABEL = "job-name";
+    private static final String KNATIVE_SERVICE_LABEL = "serving.knative.dev/service";
     private static final String FOREGROUND_POLICY = "Foreground";
 
     private final ApiClient apiClient;
+    private final ResourceWatchers resourceWatchers;
+    private final ApiRateLimiter rateLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final RetryPolicy retryPolicy;
+    private final Scheduler scheduler;
+    private final boolean podCacheEnabled;
 
     public Mono<Void> createSecret(String namespace, V1Secret secret) {
-        return Mono.create(sink -> {
+        return send(Priority.INTERACTIVE, false, Mono.create(sink -> {
             V1ObjectMeta metadata = secret.getMetadata();
             String name = metadata.getName();
 
@@ -60,11 +82,11 @@ public class KubernetesClient {
             } catch (ApiException e) {
                 sink.error(e);
             }
-        });
+        }));
     }
 
     public Mono<Void> deleteSecret(String namespace, String name) {
-        return Mono.create(sink -> {
+        return send(Priority.BACKGROUND, true, Mono.create(sink -> {
             CoreV1Api coreApi = new CoreV1Api(apiClient);
             log.info("Deleting a secret {}", name);
             try {
@@ -84,51 +106,104 @@ public class KubernetesClient {
             } catch (ApiException e) {
                 sink.error(e);
             }
-        });
+        }));
+    }
+
+    /**
+     * Creates the job and waits for it to complete.
+     *
+     * @param listener receives the states of the job while it runs
+     */
+    public Mono<Void> createJob(String namespace, V1Job job, int imageBuildTimeoutSec, Consumer<V1Job> listener) {
+        String name = job.getMetadata().getName();
+        // Subscribe to the job events before the job is created to not miss any of them
+        Flux<V1Job> events = resourceWatchers.jobs(namespace).watch(name)
+                .doOnNext(listener);
+        return Flux.merge(events, submitJob(namespace, job).then(Mono.<V1Job>empty()))
+                .filter(KubernetesUtils::extractJobCompletionStatus)
+                .next()
+                .timeout(Duration.ofSeconds(imageBuildTimeoutSec), Mono.error(() -> new IllegalStateException(
+                        "Job %s hasn't completed in %d seconds".formatted(name, imageBuildTimeoutSec))))
+                .doOnNext(jobState -> log.info("Job {} has completed successfully", name))
+                .then();
     }
 
-    public Mono<Void> createJob(String namespace, V1Job job, int imageBuildTimeoutSec) {
-        // Currently there is no asynchronous Watch api
-        return Mono.<Void>fromCallable(() -> {
+    private Mono<Void> submitJob(String namespace, V1Job job) {
+        return send(Priority.INTERACTIVE, false, Mono.create(sink -> {
             String name = job.getMetadata().getName();
 
             BatchV1Api batchApi = new BatchV1Api(apiClient);
-            Call call = batchApi.listNamespacedJob(namespace)
-                    .watch(true)
-                    .timeoutSeconds(imageBuildTimeoutSec)
-                    .buildCall(null);
-
-            try (Watch<V1Job> watch = Watch.createWatch(batchApi.getApiClient(), call, JOB_TYPE_TOKEN.getType())) {
-                log.info("Creating a job {}", name);
+            log.info("Creating a job {}", name);
+            try {
                 batchApi.createNamespacedJob(namespace, job)
-                        .execute();
-
-                log.info("Waiting for job {} to complete", name);
-                for (Watch.Response<V1Job> item : watch) {
-                    V1Job jobState = item.object;
-                    if (jobState != null && name.equals(jobState.getMetadata().getName())
-                            && KubernetesUtils.extractJobCompletionStatus(jobState)) {
-                        log.info("Job {} has completed successfully", name);
-                        return null;
-                    }
-                }
-            }
+                        .executeAsync(new NoProgressApiCallback<>() {
+                            @Override
+                            public void onFailure(ApiException e, int i, Map<String, List<String>> map) {
+                                sink.error(e);
+                            }
 
-            throw new IllegalStateException("Subscription to job %s events expired".formatted(name));
-        })
-        .subscribeOn(Schedulers.boundedElastic());
+                            @Override
+                            public void onSuccess(V1Job state, int i, Map<String, List<String>> map) {
+                                log.info("Waiting for job {} to complete", name);
+                                sink.success();
+                            }
+                        });
+            } catch (ApiException e) {
+                sink.error(e);
+            }
+        }));
     }
 
     public Mono<V1PodList> getJobPods(String namespace, String name) {
-        return getPods(namespace, "job-name=" + name);
+        return getJobPods(namespace, name, false);
+    }
+
+    /**
+     * Returns pods of a job.
+     *
+     * @param live whether to bypass the pod cache and query the API server
+     */
+    public Mono<V1PodList> getJobPods(String namespace, String name, boolean live) {
+        return getPods(namespace, JOB_NAME_LABEL, name, live);
+    }
+
+    /**
+     * Watches the states of the pods of the job, including the ones created after the call.
+     */
+    public Flux<V1Pod> watchJobPods(String namespace, String name) {
+        return resourceWatchers.pods(namespace, JOB_NAME_LABEL)
+                .watchByLabel(JOB_NAME_LABEL, name);
     }
 
     public Mono<V1PodList> getKnativeServicePods(String namespace, String name) {
-        return getPods(namespace, "serving.knative.dev/service=" + name);
+        return getKnativeServicePods(namespace, name, false);
+    }
+
+    /**
+     * Returns pods of a Knative service.
+     *
+     * @param live whether to bypass the pod cache and query the API server
+     */
+    public Mono<V1PodList> getKnativeServicePods(String namespace, String name, boolean live) {
+        return getPods(namespace, KNATIVE_SERVICE_LABEL, name, live);
+    }
+
+    private Mono<V1PodList> getPods(String namespace, String labelKey, String labelValue, boolean live) {
+        return Mono.defer(() -> {
+            if (podCacheEnabled && !live) {
+                ResourceWatcher<V1Pod> pods = resourceWatchers.pods(namespace, labelKey);
+                // Until the initial list completes the cache may miss pods, so read them from the API server
+                if (pods.hasSynced()) {
+                    return Mono.just(new V1PodList().items(pods.listByLabel(labelKey, labelValue)));
+                }
+            }
+
+            return getPods(namespace, labelKey + "=" + labelValue);
+        });
     }
 
     private Mono<V1PodList> getPods(String namespace, String label) {
-        return Mono.create(sink -> {
+        return send(Priority.INTERACTIVE, true, Mono.create(sink -> {
             CoreV1Api coreV1Api = new CoreV1Api(apiClient);
             log.info("Querying pods with label {}", label);
             try {
@@ -149,36 +224,76 @@ public class KubernetesClient {
             } catch (ApiException e) {
                 sink.error(e);
             }
-        });
+        }));
     }
 
-    public Mono<String> getContainerLog(String namespace, String pod, String container) {
-        return Mono.create(sink -> {
-            CoreV1Api coreV1Api = new CoreV1Api(apiClient);
+    public Mono<String> getContainerLog(String namespace, String pod, String container, LogOptions options) {
+        return send(Priority.BACKGROUND, true, Mono.create(sink -> {
             log.info("Retrieving pod {} container {} logs", pod, container);
             try {
-                coreV1Api.readNamespacedPodLog(pod, namespace)
-                        .container(container)
-                        .executeAsync(new NoProgressApiCallback<>() {
-                            @Override
-                            public void onFailure(ApiException e, int i, Map<String, List<String>> map) {
-                                sink.error(e);
-                            }
+                Call call = buildLogCall(namespace, pod, container, options);
+                apiClient.executeAsync(call, String.class, new NoProgressApiCallback<String>() {
+                    @Override
+                    public void onFailure(ApiException e, int i, Map<String, List<String>> map) {
+                        sink.error(e);
+                    }
 
-                            @Override
-                            public void onSuccess(String logs, int i, Map<String, List<String>> map) {
-                                log.info("Retrieved pod {} container {} logs", pod, container);
-                                sink.success(logs);
-                            }
-                        });
+                    @Override
+                    public void onSuccess(String logs, int i, Map<String, List<String>> map) {
+                        log.info("Retrieved pod {} container {} logs", pod, container);
+                        sink.success(logs);
+                    }
+                });
             } catch (ApiException e) {
                 sink.error(e);
             }
-        });
+        }));
+    }
+
+    /**
+     * Streams container log line by line without loading it into memory as a whole.
+     */
+    public Flux<String> streamContainerLog(String namespace, String pod, String container, LogOptions options) {
+        return rateLimiter.acquire(Priority.BACKGROUND).thenMany(Flux.using(
+                        () -> openContainerLog(namespace, pod, container, options),
+                        stream -> Flux.<String>generate(sink -> {
+                            try {
+                                String line = stream.response().body().source().readUtf8Line();
+                                if (line == null) {
+                                    log.info("Streamed pod {} container {} logs", pod, container);
+                                    sink.complete();
+                                } else {
+                                    sink.next(line);
+                                }
+                            } catch (IOException e) {
+                                if (stream.call().isCanceled()) {
+                                    sink.complete();
+                                } else {
+                                    sink.error(e);
+                                }
+                            }
+                        }),
+                        LogStream::close)
+                // Reading the response body blocks, for as long as the container runs when following
+                .subscribeOn(scheduler));
+    }
+
+    private LogStream openContainerLog(String namespace, String pod, String container, LogOptions options)
+            throws ApiException, IOException {
+        log.info("Streaming pod {} container {} logs", pod, container);
+        Call call = buildLogCall(namespace, pod, container, options);
+        Response response = call.execute();
+        if (!response.isSuccessful()) {
+            try (response) {
+                throw new ApiException(response.code(), response.headers().toMultimap(), response.body().string());
+            }
+        }
+
+        return new LogStream(call, response);
     }
 
     public Mono<Void> deleteJob(String namespace, String name) {
-        return Mono.create(sink -> {
+        return send(Priority.BACKGROUND, true, Mono.create(sink -> {
             BatchV1Api batchV1Api = new BatchV1Api(apiClient);
             log.info("Deleting a job {}", name);
             try {
@@ -199,45 +314,253 @@ public class KubernetesClient {
             } catch (ApiException e) {
                 sink.error(e);
             }
+        }));
+    }
+
+    /**
+     * Returns names of all jobs in the namespace.
+     */
+    public Mono<Set<String>> listJobNames(String namespace) {
+        return send(Priority.BACKGROUND, true, Mono.create(sink -> {
+            BatchV1Api batchApi = new BatchV1Api(apiClient);
+            log.info("Listing jobs in namespace {}", namespace);
+            try {
+                batchApi.listNamespacedJob(namespace)
+                        .executeAsync(new NoProgressApiCallback<>() {
+                            @Override
+                            public void onFailure(ApiException e, int i, Map<String, List<String>> map) {
+                                sink.error(e);
+                            }
+
+                            @Override
+                            public void onSuccess(V1JobList state, int i, Map<String, List<String>> map) {
+                                sink.success(names(state));
+                            }
+                        });
+            } catch (ApiException e) {
+                sink.error(e);
+            }
+        }));
+    }
+
+    /**
+     * Returns names of all secrets in the namespace.
+     */
+    public Mono<Set<String>> listSecretNames(String namespace) {
+        return send(Priority.BACKGROUND, true, Mono.create(sink -> {
+            CoreV1Api coreV1Api = new CoreV1Api(apiClient);
+            log.info("Listing secrets in namespace {}", namespace);
+            try {
+                coreV1Api.listNamespacedSecret(namespace)
+                        .executeAsync(new NoProgressApiCallback<>() {
+                            @Override
+                            public void onFailure(ApiException e, int i, Map<String, List<String>> map) {
+                                sink.error(e);
+                            }
+
+                            @Override
+                            public void onSuccess(V1SecretList state, int i, Map<String, List<String>> map) {
+                                sink.success(names(state));
+                            }
+                        });
+            } catch (ApiException e) {
+                sink.error(e);
+            }
+        }));
+    }
+
+    /**
+     * Returns names of all Knative services in the namespace.
+     */
+    public Mono<Set<String>> listKnativeServiceNames(String namespace, String serviceVersion) {
+        return send(Priority.BACKGROUND, true, Mono.create(sink -> {
+            ServiceVersion version = ServiceVersion.parse(serviceVersion);
+
+            CustomObjectsApi customObjectsApi = new CustomObjectsApi(apiClient);
+            log.info("Listing services in namespace {}", namespace);
+            try {
+                // Generic API returns untyped objects, so the call is executed with the service list type
+                Call call = customObjectsApi.listNamespacedCustomObject(version.group(), version.version(), namespace, SERVICES)
+                        .buildCall(null);
+                apiClient.executeAsync(call, V1ServiceList.class, new NoProgressApiCallback<V1ServiceList>() {
+                    @Override
+                    public void onFailure(ApiException e, int i, Map<String, List<String>> map) {
+                        sink.error(e);
+                    }
+
+                    @Override
+                    public void onSuccess(V1ServiceList state, int i, Map<String, List<String>> map) {
+                        sink.success(names(state));
+                    }
+                });
+            } catch (ApiException e) {
+                sink.error(e);
+            }
+        }));
+    }
+
+    /**
+     * Checks whether the job exists, e.g. it hasn't been deleted yet.
+     */
+    public Mono<Boolean> hasJob(String namespace, String name) {
+        return send(Priority.BACKGROUND, true, Mono.create(sink -> {
+            BatchV1Api batchApi = new BatchV1Api(apiClient);
+            try {
+                batchApi.readNamespacedJob(name, namespace)
+                        .executeAsync(new NoProgressApiCallback<>() {
+                            @Override
+                            public void onFailure(ApiException e, int i, Map<String, List<String>> map) {
+                                if (e.getCode() == 404) {
+                                    sink.success(false);
+                                } else {
+                                    sink.error(e);
+                                }
+                            }
+
+                            @Override
+                            public void onSuccess(V1Job state, int i, Map<String, List<String>> map) {
+                                sink.success(true);
+                            }
+                        });
+            } catch (ApiException e) {
+                sink.error(e);
+            }
+        }));
+    }
+
+    /**
+     * Checks whether the secret exists, e.g. it hasn't been deleted yet.
+     */
+    public Mono<Boolean> hasSecret(String namespace, String name) {
+        return send(Priority.BACKGROUND, true, Mono.create(sink -> {
+            CoreV1Api coreV1Api = new CoreV1Api(apiClient);
+            try {
+                coreV1Api.readNamespacedSecret(name, namespace)
+                        .executeAsync(new NoProgressApiCallback<>() {
+                            @Override
+                            public void onFailure(ApiException e, int i, Map<String, List<String>> map) {
+                                if (e.getCode() == 404) {
+                                    sink.success(false);
+                                } else {
+                                    sink.error(e);
+                                }
+                            }
+
+                            @Override
+                            public void onSuccess(V1Secret state, int i, Map<String, List<String>> map) {
+                                sink.success(true);
+                            }
+                        });
+            } catch (ApiException e) {
+                sink.error(e);
+            }
+        }));
+    }
+
+    /**
+     * Checks whether the service exists, e.g. it hasn't been deleted yet.
+     */
+    public Mono<Boolean> hasKnativeService(String namespace, String name, String serviceVersion) {
+        return send(Priority.BACKGROUND, true, Mono.create(sink -> {
+            ServiceVersion version = ServiceVersion.parse(serviceVersion);
+
+            CustomObjectsApi customObjectsApi = new CustomObjectsApi(apiClient);
+            try {
+                customObjectsApi.getNamespacedCustomObject(version.group(), version.version(), namespace, SERVICES, name)
+                        .executeAsync(new NoProgressApiCallback<>() {
+                            @Override
+                            public void onFailure(ApiException e, int i, Map<String, List<String>> map) {
+                                if (e.getCode() == 404) {
+                                    sink.success(false);
+                                } else {
+                                    sink.error(e);
+                                }
+                            }
+
+                            @Override
+                            public void onSuccess(Object state, int i, Map<String, List<String>> map) {
+                                sink.success(true);
+                            }
+                        });
+            } catch (ApiException e) {
+                sink.error(e);
+            }
+        }));
+    }
+
+    public Flux<V1Service> watchKnativeService(String namespace, String name, String serviceVersion) {
+        return resourceWatchers.knativeServices(namespace, ServiceVersion.parse(serviceVersion))
+                .watch(name);
+    }
+
+    /**
+     * Creates the service and waits for it to become ready.
+     * The service is deleted if the caller cancels before that, since nobody is going to use it.
+     *
+     * @param listener receives the states of the service until it's ready
+     */
+    public Mono<String> createKnativeService(String namespace, V1Service service, int serviceSetupTimeoutSec, Consumer<V1Service> listener) {
+        String name = service.getMetadata().getName();
+        return Mono.defer(() -> {
+            AtomicReference<CompletableFuture<Void>> submission = new AtomicReference<>();
+            // Subscribe to the service events before the service is created to not miss any of them
+            Flux<V1Service> events = watchKnativeService(namespace, name, service.getApiVersion())
+                    .doOnNext(listener);
+            // The create call isn't cancelled with the setup, so that a cancelled setup can delete the service once it's created
+            Mono<V1Service> created = Mono.fromFuture(() -> {
+                CompletableFuture<Void> future = submitKnativeService(namespace, service).toFuture();
+                submission.set(future);
+                return future;
+            }, true).then(Mono.empty());
+            return Flux.merge(events, created)
+                    .mapNotNull(KubernetesUtils::extractServiceUrl)
+                    .next()
+                    .timeout(Duration.ofSeconds(serviceSetupTimeoutSec), Mono.error(() -> new IllegalStateException(
+                            "Service %s hasn't been set up in %d seconds".formatted(name, serviceSetupTimeoutSec))))
+                    .doOnNext(url -> log.info("Service {} has been set up", name))
+                    .doOnCancel(() -> {
+                        log.info("Setup of service {} has been cancelled", name);
+                        CompletableFuture<Void> future = submission.get();
+                        // Whether a failed create call has reached the server is unknown, so the service is deleted anyway
+                        Mono<Void> submitted = future == null
+                                ? Mono.empty()
+                                : Mono.fromFuture(future).onErrorResume(e -> Mono.empty());
+                        submitted.then(KubernetesUtils.skipIfNotFound(
+                                        deleteKnativeService(namespace, name, service.getApiVersion()), Boolean.FALSE))
+                                .subscribe(null, e -> log.warn("Failed to delete the cancelled service {}", name, e));
+                    });
         });
     }
 
-    public Mono<String> createKnativeService(String namespace, V1Service service, int serviceSetupTimeoutSec) {
-        // Currently there is no asynchronous Watch api
-        return Mono.fromCallable(() -> {
+    private Mono<Void> submitKnativeService(String namespace, V1Service service) {
+        return send(Priority.INTERACTIVE, false, Mono.create(sink -> {
             String name = service.getMetadata().getName();
             ServiceVersion version = ServiceVersion.parse(service.getApiVersion());
 
             CustomObjectsApi customObjectsApi = new CustomObjectsApi(apiClient);
-            Call call = customObjectsApi.listNamespacedCustomObject(version.group(), version.version(), namespace, SERVICES)
-                    .watch(true)
-                    .timeoutSeconds(serviceSetupTimeoutSec)
-                    .buildCall(null);
-            try (Watch<V1Service> watch = Watch.createWatch(
-                    customObjectsApi.getApiClient(), call, SERVICE_TYPE_TOKEN.getType())) {
-                log.info("Creating a service {}", name);
+            log.info("Creating a service {}", name);
+            try {
                 customObjectsApi.createNamespacedCustomObject(version.group(), version.version(), namespace, SERVICES, service)
-                        .execute();
-
-                for (Watch.Response<V1Service> item : watch) {
-                    V1Service serviceState = item.object;
-                    if (serviceState != null && name.equals(serviceState.getMetadata().getName())) {
-                        String url = KubernetesUtils.extractServiceUrl(serviceState);
-                        if (url != null) {
-                            log.info("Service {} has been set up", name);
-                            return url;
-                        }
-                    }
-                }
-            }
+                        .executeAsync(new NoProgressApiCallback<>() {
+                            @Override
+                            public void onFailure(ApiException e, int i, Map<String, List<String>> map) {
+                                sink.error(e);
+                            }
 
-            throw new IllegalStateException("Subscription to service %s events expired".formatted(name));
-        })
-        .subscribeOn(Schedulers.boundedElastic());
+                            @Override
+                            public void onSuccess(Object state, int i, Map<String, List<String>> map) {
+                                log.info("Waiting for service {} to become ready", name);
+                                sink.success();
+                            }
+                        });
+            } catch (ApiException e) {
+                sink.error(e);
+            }
+        }));
     }
 
     public Mono<Void> deleteKnativeService(String namespace, String name, String serviceVersion) {
-        return Mono.create(sink -> {
+        return send(Priority.BACKGROUND, true, Mono.create(sink -> {
             ServiceVersion version = ServiceVersion.parse(serviceVersion);
 
             CustomObjectsApi customObjectsApi = new CustomObjectsApi(apiClient);
@@ -260,12 +583,58 @@ public class KubernetesClient {
             } catch (ApiException e) {
                 sink.error(e);
             }
-        });
+        }));
+    }
+
+    /**
+     * Sends a call once the rate limiter lets it through, retrying it on transient errors.
+     * The circuit breaker counts a failure once the retries are exhausted, so that a single slow call can't open it.
+     *
+     * @param idempotent whether the call can be repeated after an error when it's unknown if the server processed it
+     */
+    private <T> Mono<T> send(Priority priority, boolean idempotent, Mono<T> call) {
+        return circuitBreaker.protect(rateLimiter.acquire(priority).then(call)
+                .retryWhen(retryPolicy.retry(idempotent ? RetryPolicy::isTransient : RetryPolicy::isThrottled)));
+    }
+
+    private static Set<String> names(KubernetesListObject list) {
+        return list.getItems().stream()
+                .map(item -> item.getMetadata().getName())
+                .collect(Collectors.toSet());
     }
 
     public static void addKnativeServiceToModelMap(String serviceVersion) {
         ServiceVersion version = ServiceVersion.parse(serviceVersion);
-        ModelMapper.addModelMap(version.group(), version.version(), "Service", SERVICES, true, V1Service.class);
+        ModelMapper.addModelMap(version.group(), version.version(), "Service", SERVICES, true, V1Service.class, V1ServiceList.class);
+    }
+
+    private Call buildLogCall(String namespace, String pod, String container, LogOptions options) throws ApiException {
+        CoreV1Api coreV1Api = new CoreV1Api(apiClient);
+        Call call = coreV1Api.readNamespacedPodLog(pod, namespace)
+                .container(container)
+                .sinceSeconds(options.sinceSeconds())
+                .tailLines(options.tailLines())
+                .limitBytes(options.limitBytes())
+                .timestamps(options.timestamps())
+                .follow(options.follow())
+                .buildCall(null);
+        if (options.sinceTime() == null) {
+            return call;
+        }
+
+        // Generated API doesn't support sinceTime, the server accepts RFC3339 timestamps with seconds precision
+        Request request = call.request();
+        HttpUrl url = request.url().newBuilder()
+                .addQueryParameter("sinceTime", options.sinceTime().truncatedTo(ChronoUnit.SECONDS).toString())
+                .build();
+        return apiClient.getHttpClient().newCall(request.newBuilder().url(url).build());
+    }
+
+    private record LogStream(Call call, Response response) {
+        public void close() {
+            call.cancel();
+            response.close();
+        }
     }
 
     public record ServiceVersion(String group, String version) {
@@ -0,0 +1,15 @@
+package com.epam.aidial.kubernetes;
+
+import lombok.Builder;
+
+import java.time.Instant;
+
+@Builder
+public record LogOptions(
+        Instant sinceTime,
+        Integer sinceSeconds,
+        Integer tailLines,
+        Integer limitBytes,
+        Boolean timestamps,
+        Boolean follow) {
+}
@@ -0,0 +1,153 @@
+package com.epam.aidial.kubernetes;
+
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.informer.ResourceEventHandler;
+import io.kubernetes.client.informer.SharedIndexInformer;
+import lombok.Getter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Dispatches events of a shared informer to the subscribers waiting for a particular resource,
+ * so that concurrent operations don't open a watch of their own.
+ */
+public class ResourceWatcher<T extends KubernetesObject> implements ResourceEventHandler<T> {
+    private static final String LABELS_INDEX = "labels";
+
+    private final Map<String, Set<FluxSink<T>>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger waitCount = new AtomicInteger();
+    @Getter
+    private final String resource;
+    private final SharedIndexInformer<T> informer;
+
+    public ResourceWatcher(String resource, SharedIndexInformer<T> informer) {
+        this.resource = resource;
+        this.informer = informer;
+        informer.addIndexers(Map.of(LABELS_INDEX, ResourceWatcher::labels));
+        informer.addEventHandler(this);
+    }
+
+    public boolean hasSynced() {
+        return informer.hasSynced();
+    }
+
+    /**
+     * Returns the cached resources having the label.
+     */
+    public List<T> listByLabel(String key, String value) {
+        return informer.getIndexer().byIndex(LABELS_INDEX, label(key, value));
+    }
+
+    public Flux<T> watch(String name) {
+        return watchKey(name, sink -> {
+        });
+    }
+
+    /**
+     * Watches all resources having the label, starting with the cached ones, so that a late subscriber learns the current state.
+     * Unlike watching by name, a deletion of a resource doesn't end the watch.
+     */
+    public Flux<T> watchByLabel(String key, String value) {
+        return watchKey(label(key, value), sink -> listByLabel(key, value).forEach(sink::next));
+    }
+
+    /**
+     * Returns the number of subscribers currently waiting for resource events.
+     */
+    public int getWaitCount() {
+        return waitCount.get();
+    }
+
+    public void run() {
+        informer.run();
+    }
+
+    public void stop() {
+        informer.stop();
+    }
+
+    private Flux<T> watchKey(String key, Consumer<FluxSink<T>> initialState) {
+        // Resource names can't contain '=', so they never clash with labels
+        Flux<T> events = Flux.create(sink -> {
+            subscribe(key, sink);
+            sink.onDispose(() -> unsubscribe(key, sink));
+            // Read the cache after subscribing, so that no change is missed in between
+            initialState.accept(sink);
+        });
+
+        // Don't block the informer thread with downstream processing
+        return events.publishOn(Schedulers.parallel());
+    }
+
+    @Override
+    public void onAdd(T object) {
+        publish(object);
+    }
+
+    @Override
+    public void onUpdate(T oldObject, T newObject) {
+        publish(newObject);
+    }
+
+    @Override
+    public void onDelete(T object, boolean deletedFinalStateUnknown) {
+        String name = object.getMetadata().getName();
+        Set<FluxSink<T>> sinks = subscribers.get(name);
+        if (sinks != null) {
+            IllegalStateException error = new IllegalStateException("%s %s has been deleted".formatted(resource, name));
+            sinks.forEach(sink -> sink.error(error));
+        }
+    }
+
+    private static List<String> labels(KubernetesObject object) {
+        Map<String, String> labels = object.getMetadata().getLabels();
+        return labels == null
+                ? List.of()
+                : labels.entrySet().stream()
+                        .map(entry -> label(entry.getKey(), entry.getValue()))
+                        .toList();
+    }
+
+    private static String label(String key, String value) {
+        return key + "=" + value;
+    }
+
+    private void publish(T object) {
+        publish(object.getMetadata().getName(), object);
+        labels(object).forEach(label -> publish(label, object));
+    }
+
+    private void publish(String key, T object) {
+        Set<FluxSink<T>> sinks = subscribers.get(key);
+        if (sinks != null) {
+            sinks.forEach(sink -> sink.next(object));
+        }
+    }
+
+    private void subscribe(String name, FluxSink<T> sink) {
+        subscribers.compute(name, (key, sinks) -> {
+            Set<FluxSink<T>> result = sinks == null ? ConcurrentHashMap.newKeySet() : sinks;
+            if (result.add(sink)) {
+                waitCount.incrementAndGet();
+            }
+            return result;
+        });
+    }
+
+    private void unsubscribe(String name, FluxSink<T> sink) {
+        subscribers.computeIfPresent(name, (key, sinks) -> {
+            if (sinks.remove(sink)) {
+                waitCount.decrementAndGet();
+            }
+            return sinks.isEmpty() ? null : sinks;
+        });
+    }
+}
@@ -0,0 +1,136 @@
+package com.epam.aidial.kubernetes;
+
+import com.epam.aidial.kubernetes.knative.V1Service;
+import com.epam.aidial.kubernetes.knative.V1ServiceList;
+import com.google.gson.reflect.TypeToken;
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.informer.impl.DefaultSharedIndexInformer;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.apis.BatchV1Api;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.apis.CustomObjectsApi;
+import io.kubernetes.client.openapi.models.V1Job;
+import io.kubernetes.client.openapi.models.V1JobList;
+import io.kubernetes.client.openapi.models.V1Pod;
+import io.kubernetes.client.openapi.models.V1PodList;
+import io.kubernetes.client.util.Watch;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one long-lived informer per resource type and namespace for a Kubernetes cluster.
+ *
+ * <p>When a watch times out or the connection drops, the informer resumes it from the last seen resource version.
+ * Bookmarks keep that resource version fresh on quiet namespaces, so resuming doesn't fall back to a full relist.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ResourceWatchers {
+    private static final TypeToken<Watch.Response<V1Job>> JOB_TYPE_TOKEN = new TypeToken<>() {
+    };
+    private static final TypeToken<Watch.Response<V1Service>> SERVICE_TYPE_TOKEN = new TypeToken<>() {
+    };
+    private static final TypeToken<Watch.Response<V1Pod>> POD_TYPE_TOKEN = new TypeToken<>() {
+    };
+    // Resync is not needed, the watchers only react to changes
+    private static final long RESYNC_PERIOD = 0;
+    private static final String WAITS_METRIC = "app.kubernetes.watch.waits";
+
+    private final String clientName;
+    private final ApiClient apiClient;
+    private final Scheduler scheduler;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ResourceWatcher<V1Job>> jobWatchers = new ConcurrentHashMap<>();
+    private final Map<String, ResourceWatcher<V1Service>> serviceWatchers = new ConcurrentHashMap<>();
+    private final Map<PodSelector, ResourceWatcher<V1Pod>> podWatchers = new ConcurrentHashMap<>();
+
+    public ResourceWatcher<V1Job> jobs(String namespace) {
+        return jobWatchers.computeIfAbsent(namespace, key -> {
+            BatchV1Api batchApi = new BatchV1Api(apiClient);
+            ApiListerWatcher<V1Job, V1JobList> listerWatcher = new ApiListerWatcher<>(
+                    apiClient,
+                    params -> batchApi.listNamespacedJob(namespace)
+                            .resourceVersion(params.resourceVersion)
+                            .allowWatchBookmarks(params.watch)
+                            .timeoutSeconds(params.timeoutSeconds)
+                            .watch(params.watch)
+                            .buildCall(null),
+                    V1JobList.class,
+                    JOB_TYPE_TOKEN.getType());
+
+            return start(namespace, new ResourceWatcher<>("Job",
+                    new DefaultSharedIndexInformer<>(V1Job.class, listerWatcher, RESYNC_PERIOD)));
+        });
+    }
+
+    public ResourceWatcher<V1Service> knativeServices(String namespace, KubernetesClient.ServiceVersion version) {
+        return serviceWatchers.computeIfAbsent(namespace, key -> {
+            CustomObjectsApi customObjectsApi = new CustomObjectsApi(apiClient);
+            ApiListerWatcher<V1Service, V1ServiceList> listerWatcher = new ApiListerWatcher<>(
+                    apiClient,
+                    params -> customObjectsApi.listNamespacedCustomObject(
+                                    version.group(), version.version(), namespace, KubernetesClient.SERVICES)
+                            .resourceVersion(params.resourceVersion)
+                            .allowWatchBookmarks(params.watch)
+                            .timeoutSeconds(params.timeoutSeconds)
+                            .watch(params.watch)
+                            .buildCall(null),
+                    V1ServiceList.class,
+                    SERVICE_TYPE_TOKEN.getType());
+
+            return start(namespace, new ResourceWatcher<>("Service",
+                    new DefaultSharedIndexInformer<>(V1Service.class, listerWatcher, RESYNC_PERIOD)));
+        });
+    }
+
+    /**
+     * Returns a watcher caching the pods of the namespace that have the given label key.
+     */
+    public ResourceWatcher<V1Pod> pods(String namespace, String labelKey) {
+        return podWatchers.computeIfAbsent(new PodSelector(namespace, labelKey), key -> {
+            CoreV1Api coreApi = new CoreV1Api(apiClient);
+            ApiListerWatcher<V1Pod, V1PodList> listerWatcher = new ApiListerWatcher<>(
+                    apiClient,
+                    params -> coreApi.listNamespacedPod(namespace)
+                            .labelSelector(labelKey)
+                            .resourceVersion(params.resourceVersion)
+                            .allowWatchBookmarks(params.watch)
+                            .timeoutSeconds(params.timeoutSeconds)
+                            .watch(params.watch)
+                            .buildCall(null),
+                    V1PodList.class,
+                    POD_TYPE_TOKEN.getType());
+
+            return start(namespace, new ResourceWatcher<>("Pod",
+                    new DefaultSharedIndexInformer<>(V1Pod.class, listerWatcher, RESYNC_PERIOD)));
+        });
+    }
+
+    public void stop() {
+        jobWatchers.values().forEach(ResourceWatcher::stop);
+        serviceWatchers.values().forEach(ResourceWatcher::stop);
+        podWatchers.values().forEach(ResourceWatcher::stop);
+    }
+
+    private <T extends KubernetesObject> ResourceWatcher<T> start(String namespace, ResourceWatcher<T> watcher) {
+        log.info("Starting {} watcher in namespace {}", watcher.getResource(), namespace);
+        Gauge.builder(WAITS_METRIC, watcher, ResourceWatcher::getWaitCount)
+                .description("Number of operations waiting for resource events")
+                .tag("client", clientName)
+                .tag("resource", watcher.getResource())
+                .tag("namespace", namespace)
+                .register(meterRegistry);
+        // Informer loop blocks the thread until the informer is stopped
+        scheduler.schedule(watcher::run);
+        return watcher;
+    }
+
+    private record PodSelector(String namespace, String labelKey) {
+    }
+}
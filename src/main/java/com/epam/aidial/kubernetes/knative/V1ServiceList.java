@@ -0,0 +1,20 @@
+package com.epam.aidial.kubernetes.knative;
+
+import io.kubernetes.client.common.KubernetesListObject;
+import io.kubernetes.client.openapi.models.V1ListMeta;
+import lombok.Data;
+import lombok.Getter;
+
+import java.util.List;
+
+@Data
+public class V1ServiceList implements KubernetesListObject {
+    @Getter(onMethod = @__(@Override))
+    String apiVersion;
+    @Getter(onMethod = @__(@Override))
+    String kind;
+    @Getter(onMethod = @__(@Override))
+    V1ListMeta metadata;
+    @Getter(onMethod = @__(@Override))
+    List<V1Service> items;
+}
@@ -1,18 +1,40 @@
 package com.epam.aidial.service;
 
+import com.epam.aidial.dto.BuildLogEventDto;
+import com.epam.aidial.dto.OperationProgressDto;
 import com.epam.aidial.kubernetes.KubernetesClient;
+import com.epam.aidial.kubernetes.LogOptions;
+import com.epam.aidial.util.BuildLogScanner;
 import com.epam.aidial.util.KubernetesUtils;
-import com.epam.aidial.util.TextUtils;
+import com.epam.aidial.util.ProgressTracker;
+import com.epam.aidial.util.RateCap;
+import com.epam.aidial.util.SingleFlight;
+import io.kubernetes.client.openapi.models.V1Job;
 import io.kubernetes.client.openapi.models.V1PodList;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.lang3.StringUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.epam.aidial.util.NamingUtils.SOURCES_FINGERPRINT_LABEL;
 import static com.epam.aidial.util.NamingUtils.buildJobName;
 import static com.epam.aidial.util.NamingUtils.dialAuthSecretName;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class BuildService {
@@ -20,6 +42,7 @@ public class BuildService {
     private final KubernetesService kubernetesService;
     private final ConfigService templateService;
     private final RegistryService registryService;
+    private final DialService dialService;
 
     @Value("${app.build-namespace}")
     private final String namespace;
@@ -30,24 +53,182 @@ public class BuildService {
     @Value("${app.max-error-log-chars}")
     private final int maxErrorLogChars;
 
+    @Value("${app.error-log-tail-lines}")
+    private final int errorLogTailLines;
+
     @Value("${app.image-build-timeout-sec}")
     private final int imageBuildTimeoutSec;
 
-    public Mono<String> build(BuildParameters params) {
+    @Value("${app.skip-unchanged-builds}")
+    private final boolean skipUnchangedBuilds;
+
+    @Value("${app.builder-container}")
+    private final String builderContainer;
+
+    @Value("${app.build-log-max-lines-per-sec}")
+    private final int buildLogMaxLinesPerSec;
+
+    private final SingleFlight<String, BuildLogEventDto> logFollows = new SingleFlight<>();
+
+    /**
+     * Builds the image.
+     *
+     * @param progress receives the phases of the build as they are reached
+     */
+    public Mono<String> build(BuildParameters params, Consumer<OperationProgressDto> progress) {
+        if (!skipUnchangedBuilds) {
+            return createImage(params, null, progress);
+        }
+
+        return fingerprint(params)
+                .flatMap(fingerprint -> findImage(params.name, fingerprint)
+                        .switchIfEmpty(Mono.defer(() -> createImage(params, fingerprint, progress))))
+                .switchIfEmpty(Mono.defer(() -> createImage(params, null, progress)));
+    }
+
+    private Mono<String> createImage(BuildParameters params, @Nullable String fingerprint, Consumer<OperationProgressDto> progress) {
         KubernetesClient kubernetesClient = kubernetesService.buildClient();
+        ProgressTracker tracker = new ProgressTracker(progress);
         return Mono.fromCallable(() -> templateService.dialAuthSecretConfig(params.name, params.apiKey, params.jwt))
                 .flatMap(secret -> kubernetesClient.createSecret(namespace, secret))
-                .then(Mono.fromCallable(() -> templateService.buildJobConfig(params.name, params.sources, params.runtime)))
-                .flatMap(job -> kubernetesClient.createJob(namespace, job, imageBuildTimeoutSec))
+                .then(Mono.fromRunnable(() -> tracker.report(OperationProgressDto.Phase.SECRET_CREATED, Instant.now())))
+                .then(Mono.fromCallable(() -> templateService.buildJobConfig(params.name, params.sources, params.runtime, fingerprint)))
+                .flatMap(job -> runJob(kubernetesClient, job, tracker))
+                // The image may have been pushed even if the build has failed afterwards
+                .doFinally(signal -> registryService.evictDigest(params.name))
                 .onErrorResume(e -> {
                     String jobName = buildJobName(params.name);
 
-                    return kubernetesClient.getJobPods(namespace, jobName)
+                    // The failed pod may not have reached the cache yet when the job has already failed
+                    return kubernetesClient.getJobPods(namespace, jobName, true)
                             .flatMap(this::extractErrorFromLog)
                             .flatMap(error -> Mono.error(new RuntimeException(error)))
                             .then(Mono.error(e));
                 })
-                .thenReturn(registryService.fullImageName(params.name));
+                .thenReturn(registryService.fullImageName(params.name))
+                .doOnCancel(() -> deleteCancelledBuild(params.name));
+    }
+
+    /**
+     * Stops the build job and deletes the secret once the caller has gone, so that the job doesn't keep the builder busy.
+     */
+    private void deleteCancelledBuild(String name) {
+        KubernetesClient kubernetesClient = kubernetesService.buildClient();
+        log.info("Build of {} has been cancelled", name);
+        Mono.just(Boolean.FALSE)
+                .flatMap(deleted -> KubernetesUtils.skipIfNotFound(kubernetesClient.deleteJob(namespace, buildJobName(name)), deleted))
+                .flatMap(deleted -> KubernetesUtils.skipIfNotFound(kubernetesClient.deleteSecret(namespace, dialAuthSecretName(name)), deleted))
+                .subscribe(null, e -> log.warn("Failed to delete the cancelled build of {}", name, e));
+    }
+
+    private Mono<Void> runJob(KubernetesClient kubernetesClient, V1Job job, ProgressTracker tracker) {
+        String name = job.getMetadata().getName();
+        Mono<Void> completion = kubernetesClient.createJob(namespace, job, imageBuildTimeoutSec,
+                state -> tracker.report(KubernetesUtils.extractJobPhases(state)));
+        return kubernetesClient.watchJobPods(namespace, name)
+                .doOnNext(pod -> tracker.report(KubernetesUtils.extractBuildPodPhases(pod, builderContainer)))
+                .takeUntilOther(completion)
+                // The pod may have changed after its last event received before the job completion, and the cache may lag too
+                .then(Mono.defer(() -> kubernetesClient.getJobPods(namespace, name, true)))
+                .doOnNext(pods -> pods.getItems()
+                        .forEach(pod -> tracker.report(KubernetesUtils.extractBuildPodPhases(pod, builderContainer))))
+                .then();
+    }
+
+    /**
+     * Follows the logs of the build job containers as they start: the sources download first, then the build.
+     * Lines beyond the rate cap or the ones the caller can't keep up with are dropped, so that a verbose build doesn't stall the log streams.
+     * Callers following the same build share the log streams, since each of them holds a thread while it's open.
+     */
+    public Flux<BuildLogEventDto> followLogs(String name) {
+        return Flux.defer(() -> {
+            AtomicLong dropped = new AtomicLong();
+            return logFollows.execute(name, () -> streamLogs(name))
+                    .onBackpressureDrop(line -> dropped.incrementAndGet())
+                    .doFinally(signal -> {
+                        if (dropped.get() > 0) {
+                            log.info("Dropped {} log lines of the build of {} the caller couldn't keep up with", dropped.get(), name);
+                        }
+                    });
+        });
+    }
+
+    private Flux<BuildLogEventDto> streamLogs(String name) {
+        KubernetesClient kubernetesClient = kubernetesService.buildClient();
+        LogOptions logOptions = LogOptions.builder()
+                .follow(true)
+                .build();
+        Set<String> followedContainers = ConcurrentHashMap.newKeySet();
+        RateCap rateCap = new RateCap(buildLogMaxLinesPerSec);
+        AtomicLong dropped = new AtomicLong();
+        return kubernetesClient.watchJobPods(namespace, buildJobName(name))
+                .concatMapIterable(KubernetesUtils::extractStartedContainers)
+                .filter(container -> followedContainers.add(container.getKey() + "/" + container.getValue()))
+                .flatMap(container -> kubernetesClient.streamContainerLog(namespace, container.getKey(), container.getValue(), logOptions)
+                        .filter(line -> {
+                            if (rateCap.tryAcquire()) {
+                                return true;
+                            }
+
+                            dropped.incrementAndGet();
+                            return false;
+                        })
+                        .map(line -> new BuildLogEventDto(container.getValue(), line))
+                        .onErrorResume(e -> {
+                            log.warn("Failed to follow logs of pod {} container {}", container.getKey(), container.getValue(), e);
+                            return Mono.empty();
+                        }))
+                .doFinally(signal -> {
+                    if (dropped.get() > 0) {
+                        log.info("Dropped {} log lines of the build of {} over the rate cap", dropped.get(), name);
+                    }
+                });
+    }
+
+    /**
+     * Returns the image if it has been built from the sources with the fingerprint.
+     */
+    private Mono<String> findImage(String name, String fingerprint) {
+        return registryService.getImageLabel(name, SOURCES_FINGERPRINT_LABEL)
+                .filter(fingerprint::equals)
+                .map(ignore -> {
+                    log.info("Sources of {} haven't changed, skipping the build", name);
+                    return registryService.fullImageName(name);
+                })
+                .onErrorResume(e -> {
+                    log.warn("Failed to check the sources fingerprint of image {}", name, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Hashes the versions of the source files together with the runtime and the build job images.
+     * Empty if the sources can't be listed, the build job reports the actual error then.
+     */
+    private Mono<String> fingerprint(BuildParameters params) {
+        return dialService.listFiles(params.sources, params.apiKey, params.jwt)
+                .map(files -> {
+                    MessageDigest digest = sha256Digest();
+                    digest.update(templateService.buildFingerprintInputs(params.runtime).getBytes(StandardCharsets.UTF_8));
+                    files.stream()
+                            .sorted(Comparator.comparing(DialService.FileMetadata::url))
+                            .forEach(file -> digest.update("%s %s %d %d\n".formatted(
+                                    file.url(), file.etag(), file.contentLength(), file.updatedAt()).getBytes(StandardCharsets.UTF_8)));
+                    return HexFormat.of().formatHex(digest.digest());
+                })
+                .onErrorResume(e -> {
+                    log.warn("Failed to compute the sources fingerprint of {}", params.name, e);
+                    return Mono.empty();
+                });
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
     }
 
     public Mono<Boolean> clean(String name) {
@@ -63,20 +244,29 @@ public class BuildService {
 
     private Mono<String> extractErrorFromLog(V1PodList podList) {
         KubernetesClient kubernetesClient = kubernetesService.buildClient();
+        LogOptions logOptions = LogOptions.builder()
+                .tailLines(errorLogTailLines)
+                .build();
         return Mono.fromCallable(() -> KubernetesUtils.extractFailedContainer(podList))
-                .flatMap(container -> kubernetesClient.getContainerLog(
-                        namespace, container.getKey(), container.getValue()))
-                .map(text -> {
-                    int validationErrorIndex = text.indexOf(APP_VALIDATION_ERROR_PREFIX);
-                    return validationErrorIndex == StringUtils.INDEX_NOT_FOUND
-                            ? "Failed to build image. Logs: %s".formatted(
-                                    TextUtils.truncateText(text, maxErrorLogLines, maxErrorLogChars))
-                            : "Validation error: %s".formatted(
-                                    text.substring(validationErrorIndex + APP_VALIDATION_ERROR_PREFIX.length())).trim();
-
+                .flatMap(container -> kubernetesClient.streamContainerLog(
+                                namespace, container.getKey(), container.getValue(), logOptions)
+                        .reduceWith(
+                                () -> new BuildLogScanner(APP_VALIDATION_ERROR_PREFIX, maxErrorLogLines, maxErrorLogChars),
+                                BuildLogScanner::accept))
+                .map(scanner -> {
+                    String validationError = scanner.getMarkedText();
+                    return validationError == null
+                            ? "Failed to build image. Logs: %s".formatted(scanner.getTail())
+                            : "Validation error: %s".formatted(validationError).trim();
                 });
     }
 
     public record BuildParameters(String name, String sources, String apiKey, String jwt, String runtime) {
+        /**
+         * Returns the parameters identifying the build, the credentials only grant access to the sources.
+         */
+        public BuildParameters withoutCredentials() {
+            return new BuildParameters(name, sources, null, null, runtime);
+        }
     }
 }
@@ -3,25 +3,30 @@ package com.epam.aidial.service;
 
 import com.epam.aidial.config.AppConfiguration;
 import com.epam.aidial.kubernetes.knative.V1Service;
-import com.epam.aidial.util.mapping.ListMapper;
-import com.epam.aidial.util.mapping.MappingChain;
+import com.epam.aidial.util.mapping.ListPlan;
+import com.epam.aidial.util.mapping.MappingPlan;
 import io.kubernetes.client.openapi.models.V1Container;
 import io.kubernetes.client.openapi.models.V1EnvFromSource;
 import io.kubernetes.client.openapi.models.V1EnvVar;
 import io.kubernetes.client.openapi.models.V1Job;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
 import io.kubernetes.client.openapi.models.V1PodSpec;
 import io.kubernetes.client.openapi.models.V1Secret;
 import io.kubernetes.client.openapi.models.V1SecretEnvSource;
+import io.kubernetes.client.util.Yaml;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.PostConstruct;
 
+import static com.epam.aidial.util.NamingUtils.SOURCES_FINGERPRINT_LABEL;
 import static com.epam.aidial.util.NamingUtils.appName;
 import static com.epam.aidial.util.NamingUtils.buildJobName;
 import static com.epam.aidial.util.NamingUtils.dialAuthSecretName;
@@ -47,6 +52,8 @@ import static com.epam.aidial.util.mapping.Mappers.TEMPLATE_CONTAINERS_FIELD;
 @Service
 @RequiredArgsConstructor
 public class ConfigService {
+    private static final String FINGERPRINT_PLACEHOLDER = "fingerprint";
+
     private final RegistryService registryService;
     private final AppConfiguration appConfiguration;
 
@@ -59,6 +66,52 @@ public class ConfigService {
     @Value("${app.service-container}")
     private final String serviceContainer;
 
+    private MappingPlan<V1Secret, V1ObjectMeta> secretMetadata;
+
+    private MappingPlan<V1Job, V1ObjectMeta> jobMetadata;
+
+    private MappingPlan<V1Job, V1EnvVar> pullerSources;
+
+    private MappingPlan<V1Job, List<V1EnvFromSource>> pullerEnvFrom;
+
+    private MappingPlan<V1Job, List<String>> builderArgs;
+
+    private MappingPlan<V1Service, V1ObjectMeta> serviceMetadata;
+
+    private MappingPlan<V1Service, V1Container> appContainer;
+
+    private ListPlan<V1Service, V1EnvVar> appContainerEnv;
+
+    @PostConstruct
+    void initialize() {
+        secretMetadata = MappingPlan.compile(appConfiguration.cloneSecretConfig())
+                .get(SECRET_METADATA_FIELD);
+
+        MappingPlan<V1Job, V1Job> job = MappingPlan.compile(appConfiguration.cloneJobConfig());
+        jobMetadata = job.get(JOB_METADATA_FIELD);
+        MappingPlan<V1Job, V1PodSpec> podSpec = job.get(JOB_SPEC_FIELD)
+                .get(JOB_TEMPLATE_FIELD)
+                .get(JOB_TEMPLATE_SPEC_FIELD);
+        MappingPlan<V1Job, V1Container> puller = podSpec
+                .getList(POD_INIT_CONTAINERS_FIELD, CONTAINER_NAME)
+                .get(pullerContainer);
+        pullerSources = puller.getList(CONTAINER_ENV_FIELD, ENV_VAR_NAME)
+                .get("SOURCES");
+        pullerEnvFrom = puller.get(CONTAINER_ENV_FROM_FIELD);
+        builderArgs = podSpec.getList(POD_CONTAINERS_FIELD, CONTAINER_NAME)
+                .get(builderContainer)
+                .get(CONTAINER_ARGS_FIELD);
+
+        MappingPlan<V1Service, V1Service> service = MappingPlan.compile(appConfiguration.cloneServiceConfig());
+        serviceMetadata = service.get(SERVICE_METADATA_FIELD);
+        appContainer = service.get(SERVICE_SPEC_FIELD)
+                .get(SERVICE_TEMPLATE_FIELD)
+                .get(SERVICE_TEMPLATE_SPEC_FIELD)
+                .getList(TEMPLATE_CONTAINERS_FIELD, CONTAINER_NAME)
+                .get(serviceContainer);
+        appContainerEnv = appContainer.getList(CONTAINER_ENV_FIELD, ENV_VAR_NAME);
+    }
+
     public V1Secret dialAuthSecretConfig(String name, String apiKey, String jwt) {
         Map<String, String> creds = new HashMap<>();
         if (StringUtils.isNotBlank(apiKey)) {
@@ -68,71 +121,81 @@ public class ConfigService {
             creds.put("JWT", jwt);
         }
 
-        MappingChain<V1Secret> config = new MappingChain<>(this.appConfiguration.cloneSecretConfig());
-        config.get(SECRET_METADATA_FIELD)
+        V1Secret config = appConfiguration.cloneSecretConfig();
+        secretMetadata.apply(config)
                 .data()
                 .setName(dialAuthSecretName(name));
 
-        return config.data().stringData(creds);
+        return config.stringData(creds);
+    }
+
+    /**
+     * Creates the build job, labeling the image with the fingerprint of the sources if it's known.
+     */
+    public V1Job buildJobConfig(String name, String sources, String runtime, @Nullable String fingerprint) {
+        V1Job config = renderBuildJob(name, sources, runtime);
+        log.info("Target image: {}", registryService.fullImageName(name));
+        if (fingerprint != null) {
+            builderArgs.apply(config)
+                    .data()
+                    .add("--label=%s=%s".formatted(SOURCES_FINGERPRINT_LABEL, fingerprint));
+        }
+
+        return config;
     }
 
-    public V1Job buildJobConfig(String name, String sources, String runtime) {
-        String targetImage = registryService.fullImageName(name);
-        log.info("Target image: {}", targetImage);
+    /**
+     * Returns the build settings the image depends on besides the sources: the whole build job rendered for the runtime.
+     * The application name and the sources are replaced with placeholders, since the sources are hashed file by file.
+     */
+    public String buildFingerprintInputs(String runtime) {
+        return Yaml.dump(renderBuildJob(FINGERPRINT_PLACEHOLDER, FINGERPRINT_PLACEHOLDER, runtime));
+    }
 
-        MappingChain<V1Job> config = new MappingChain<>(this.appConfiguration.cloneJobConfig());
-        config.get(JOB_METADATA_FIELD)
+    private V1Job renderBuildJob(String name, String sources, String runtime) {
+        AppConfiguration.RuntimeConfiguration runtimeConfig = runtimeConfig(runtime);
+        V1Job config = appConfiguration.cloneJobConfig();
+        jobMetadata.apply(config)
                 .data()
                 .setName(buildJobName(name));
-        MappingChain<V1PodSpec> podSpec = config.get(JOB_SPEC_FIELD)
-                .get(JOB_TEMPLATE_FIELD)
-                .get(JOB_TEMPLATE_SPEC_FIELD);
-        MappingChain<V1Container> puller = podSpec
-                .getList(POD_INIT_CONTAINERS_FIELD, CONTAINER_NAME)
-                .get(pullerContainer);
-        puller.getList(CONTAINER_ENV_FIELD, ENV_VAR_NAME)
-                .get("SOURCES")
+        pullerSources.apply(config)
                 .data()
                 .setValue(sources);
-        AppConfiguration.RuntimeConfiguration runtimeConfig = appConfiguration.getRuntimes().get(runtime);
-        if (runtimeConfig == null) {
-            throw new IllegalArgumentException(
-                    "Unsupported runtime: %s. Supported: %s".formatted(runtime, appConfiguration.getRuntimes().keySet()));
-        }
-        puller.get(CONTAINER_ENV_FROM_FIELD)
+        pullerEnvFrom.apply(config)
                 .data()
                 .add(new V1EnvFromSource().secretRef(
                         new V1SecretEnvSource().name(dialAuthSecretName(name))));
-        podSpec.getList(POD_CONTAINERS_FIELD, CONTAINER_NAME)
-                .get(builderContainer)
-                .get(CONTAINER_ARGS_FIELD)
+        builderArgs.apply(config)
                 .data()
                 .addAll(List.of(
                         "--dockerfile=/templates/%s/Dockerfile".formatted(runtimeConfig.getProfile()),
-                        "--destination=%s".formatted(targetImage),
+                        "--destination=%s".formatted(registryService.fullImageName(name)),
                         "--build-arg=PYTHON_IMAGE=%s".formatted(runtimeConfig.getImage())));
-
-        return config.data();
+        return config;
     }
 
     public V1Service appServiceConfig(String name, Map<String, String> env) {
-        MappingChain<V1Service> config = new MappingChain<>(this.appConfiguration.cloneServiceConfig());
-        config.get(SERVICE_METADATA_FIELD)
+        V1Service config = appConfiguration.cloneServiceConfig();
+        serviceMetadata.apply(config)
                 .data()
                 .setName(appName(name));
-        MappingChain<V1Container> container = config.get(SERVICE_SPEC_FIELD)
-                .get(SERVICE_TEMPLATE_FIELD)
-                .get(SERVICE_TEMPLATE_SPEC_FIELD)
-                .getList(TEMPLATE_CONTAINERS_FIELD, CONTAINER_NAME)
-                .get(serviceContainer);
-
-        container.data()
+        appContainer.apply(config)
+                .data()
                 .setImage(registryService.fullImageName(name));
-        ListMapper<V1EnvVar> containerEnv = container.getList(CONTAINER_ENV_FIELD, ENV_VAR_NAME);
 
-        env.forEach((key, value) -> containerEnv.get(key)
+        env.forEach((key, value) -> appContainerEnv.get(config, key)
                 .data()
                 .setValue(value));
-        return config.data();
+        return config;
+    }
+
+    private AppConfiguration.RuntimeConfiguration runtimeConfig(String runtime) {
+        AppConfiguration.RuntimeConfiguration runtimeConfig = appConfiguration.getRuntimes().get(runtime);
+        if (runtimeConfig == null) {
+            throw new IllegalArgumentException(
+                    "Unsupported runtime: %s. Supported: %s".formatted(runtime, appConfiguration.getRuntimes().keySet()));
+        }
+
+        return runtimeConfig;
     }
 }
@@ -1,24 +1,51 @@
 package com.epam.aidial.service;
 
+import com.epam.aidial.dto.ApplicationLogEventDto;
 import com.epam.aidial.dto.GetApplicationLogsResponseDto;
+import com.epam.aidial.dto.OperationProgressDto;
 import com.epam.aidial.kubernetes.KubernetesClient;
+import com.epam.aidial.kubernetes.LogOptions;
 import com.epam.aidial.util.KubernetesUtils;
+import com.epam.aidial.util.ProgressTracker;
+import com.epam.aidial.util.RequestCoalescer;
+import io.kubernetes.client.openapi.models.V1ContainerState;
 import io.kubernetes.client.openapi.models.V1ContainerStatus;
 import io.kubernetes.client.openapi.models.V1PodList;
 import io.kubernetes.client.openapi.models.V1PodStatus;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javax.annotation.PostConstruct;
 
 import static com.epam.aidial.util.NamingUtils.appName;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class DeployService {
+    private static final char CURSOR_SEPARATOR = '/';
+
     private final KubernetesService kubernetesService;
     private final ConfigService templateService;
 
@@ -31,10 +58,28 @@ public class DeployService {
     @Value("${app.service-setup-timeout-sec}")
     private final int serviceSetupTimeoutSec;
 
-    public Mono<String> deploy(String name, Map<String, String> env) {
+    @Value("${app.log-follow-tail-lines}")
+    private final int logFollowTailLines;
+
+    @Value("${app.log-follow-refresh-sec}")
+    private final int logFollowRefreshSec;
+
+    @Value("${app.log-coalescing-window-ms}")
+    private final long logCoalescingWindowMs;
+
+    private RequestCoalescer<LogsRequest, List<GetApplicationLogsResponseDto.LogEntry>> logsCoalescer;
+
+    /**
+     * Deploys the service.
+     *
+     * @param progress receives the phases of the deployment as they are reached
+     */
+    public Mono<String> deploy(String name, Map<String, String> env, Consumer<OperationProgressDto> progress) {
         KubernetesClient kubernetesClient = kubernetesService.deployClient();
+        ProgressTracker tracker = new ProgressTracker(progress);
         return Mono.fromCallable(() -> templateService.appServiceConfig(name, env))
-                .flatMap(service -> kubernetesClient.createKnativeService(namespace, service, serviceSetupTimeoutSec));
+                .flatMap(service -> kubernetesClient.createKnativeService(namespace, service, serviceSetupTimeoutSec,
+                        state -> tracker.report(KubernetesUtils.extractServicePhases(state))));
     }
 
     public Mono<Boolean> undeploy(String name) {
@@ -45,8 +90,19 @@ public class DeployService {
                 Boolean.FALSE);
     }
 
-    public Mono<List<GetApplicationLogsResponseDto.LogEntry>> logs(String name) {
+    @PostConstruct
+    private void initialize() {
+        logsCoalescer = new RequestCoalescer<>(Duration.ofMillis(logCoalescingWindowMs));
+    }
+
+    public Mono<List<GetApplicationLogsResponseDto.LogEntry>> logs(String name, LogParameters params) {
+        // Concurrent identical requests share a single upstream fetch
+        return logsCoalescer.execute(new LogsRequest(name, params), () -> fetchLogs(name, params));
+    }
+
+    private Mono<List<GetApplicationLogsResponseDto.LogEntry>> fetchLogs(String name, LogParameters params) {
         KubernetesClient kubernetesClient = kubernetesService.deployClient();
+        Map<String, Instant> cursors = parseCursors(params.cursors());
         return kubernetesClient.getKnativeServicePods(namespace, appName(name))
                 .flatMapIterable(V1PodList::getItems)
                 .flatMap(pod -> {
@@ -55,17 +111,236 @@ public class DeployService {
                     }
 
                     String podName = pod.getMetadata().getName();
-                    return kubernetesClient.getContainerLog(namespace, podName, serviceContainer)
-                            .map(text -> new GetApplicationLogsResponseDto.LogEntry(podName, text));
+                    Instant cursor = cursors.get(podName);
+                    LogOptions logOptions = cursor == null
+                            ? LogOptions.builder()
+                                    .sinceTime(params.sinceTime())
+                                    .sinceSeconds(params.sinceSeconds())
+                                    .tailLines(params.tailLines())
+                                    .limitBytes(params.limitBytes())
+                                    .timestamps(true)
+                                    .build()
+                            : LogOptions.builder()
+                                    .sinceTime(cursor)
+                                    .limitBytes(params.limitBytes())
+                                    .timestamps(true)
+                                    .build();
+                    return kubernetesClient.getContainerLog(namespace, podName, serviceContainer, logOptions)
+                            .flatMap(text -> {
+                                GetApplicationLogsResponseDto.LogEntry entry = toLogEntry(podName, text, cursor);
+                                // The server rounds the cursor down to seconds, so the byte limit may be used up by the lines
+                                // not newer than the cursor or the next line may not fit at all, leaving the cursor in place forever
+                                if (cursor != null && params.limitBytes() != null && cursorOf(podName, cursor).equals(entry.cursor())
+                                        && text.getBytes(StandardCharsets.UTF_8).length >= params.limitBytes()) {
+                                    return readLogAfterCursor(kubernetesClient, podName, cursor, params.limitBytes());
+                                }
+
+                                return Mono.just(entry);
+                            });
                 })
                 .collectList();
     }
 
-    private static boolean isContainerReady(V1PodStatus podStatus, String container) {
-        V1ContainerStatus containerStatus = podStatus.getContainerStatuses().stream()
+    /**
+     * Reads the log after the cursor line by line without the server byte limit, stopping once the limit is reached.
+     * A line longer than the limit is truncated, so that the cursor always moves forward.
+     */
+    private Mono<GetApplicationLogsResponseDto.LogEntry> readLogAfterCursor(
+            KubernetesClient kubernetesClient, String podName, Instant cursor, int limitBytes) {
+        LogOptions logOptions = LogOptions.builder()
+                .sinceTime(cursor)
+                .timestamps(true)
+                .build();
+        return Mono.defer(() -> {
+            StringBuilder content = new StringBuilder();
+            AtomicInteger remainingBytes = new AtomicInteger(limitBytes);
+            AtomicReference<Instant> last = new AtomicReference<>(cursor);
+            return kubernetesClient.streamContainerLog(namespace, podName, serviceContainer, logOptions)
+                    .takeWhile(line -> remainingBytes.get() > 0)
+                    .doOnNext(line -> {
+                        int separator = line.indexOf(' ');
+                        Instant timestamp = separator == StringUtils.INDEX_NOT_FOUND ? null : parseTimestamp(line.substring(0, separator));
+                        if (timestamp != null && !timestamp.isAfter(cursor)) {
+                            return;
+                        }
+
+                        String text = (timestamp == null ? line : line.substring(separator + 1)) + "\n";
+                        int bytes = text.getBytes(StandardCharsets.UTF_8).length;
+                        if (bytes > remainingBytes.get() && !content.isEmpty()) {
+                            // The line is left for the next request
+                            remainingBytes.set(0);
+                            return;
+                        }
+
+                        content.append(bytes > remainingBytes.get() ? truncateToBytes(text, remainingBytes.get()) : text);
+                        remainingBytes.addAndGet(-Math.min(bytes, remainingBytes.get()));
+                        if (timestamp != null) {
+                            last.set(timestamp);
+                        }
+                    })
+                    .then(Mono.fromSupplier(() -> new GetApplicationLogsResponseDto.LogEntry(
+                            podName, content.toString(), cursorOf(podName, last.get()))));
+        });
+    }
+
+    private static String truncateToBytes(String text, int maxBytes) {
+        int end = Math.min(text.length(), maxBytes);
+        while (end > 0 && text.substring(0, end).getBytes(StandardCharsets.UTF_8).length > maxBytes) {
+            --end;
+        }
+
+        return text.substring(0, end);
+    }
+
+    public Flux<ApplicationLogEventDto> followLogs(String name) {
+        KubernetesClient kubernetesClient = kubernetesService.deployClient();
+        Set<String> followedPods = ConcurrentHashMap.newKeySet();
+        Map<String, Instant> lastTimestamps = new ConcurrentHashMap<>();
+        // Re-query pods periodically to pick up the ones started by scaling
+        return Flux.interval(Duration.ZERO, Duration.ofSeconds(logFollowRefreshSec))
+                .onBackpressureDrop()
+                .concatMap(ignore -> kubernetesClient.getKnativeServicePods(namespace, appName(name))
+                        .onErrorResume(e -> {
+                            log.warn("Failed to query pods of service {}", name, e);
+                            return Mono.empty();
+                        }))
+                .flatMapIterable(V1PodList::getItems)
+                .filter(pod -> findContainerState(pod.getStatus(), serviceContainer)
+                        .map(state -> state.getRunning() != null)
+                        .orElse(false))
+                .map(pod -> pod.getMetadata().getName())
+                .filter(followedPods::add)
+                .flatMap(podName -> followPodLogs(kubernetesClient, podName, lastTimestamps)
+                        .onErrorResume(e -> {
+                            log.warn("Failed to follow logs of pod {}", podName, e);
+                            return Mono.empty();
+                        })
+                        // Follow the pod again once its container has restarted
+                        .doFinally(signal -> followedPods.remove(podName)));
+    }
+
+    /**
+     * Follows the log of the pod, resuming after the last line seen if the pod has been followed before.
+     */
+    private Flux<ApplicationLogEventDto> followPodLogs(
+            KubernetesClient kubernetesClient, String podName, Map<String, Instant> lastTimestamps) {
+        Instant since = lastTimestamps.get(podName);
+        LogOptions logOptions = since == null
+                ? LogOptions.builder()
+                        .tailLines(logFollowTailLines)
+                        .timestamps(true)
+                        .follow(true)
+                        .build()
+                : LogOptions.builder()
+                        .sinceTime(since)
+                        .timestamps(true)
+                        .follow(true)
+                        .build();
+        return kubernetesClient.streamContainerLog(namespace, podName, serviceContainer, logOptions)
+                .mapNotNull(line -> {
+                    int separator = line.indexOf(' ');
+                    Instant timestamp = separator == StringUtils.INDEX_NOT_FOUND ? null : parseTimestamp(line.substring(0, separator));
+                    if (timestamp == null) {
+                        return new ApplicationLogEventDto(podName, line);
+                    }
+
+                    // The server rounds the since time down to seconds, so the lines already sent come again
+                    if (since != null && !timestamp.isAfter(since)) {
+                        return null;
+                    }
+
+                    lastTimestamps.put(podName, timestamp);
+                    return new ApplicationLogEventDto(podName, line.substring(separator + 1));
+                });
+    }
+
+    private static boolean isContainerReady(@Nullable V1PodStatus podStatus, String container) {
+        return findContainerState(podStatus, container)
+                .map(state -> state.getWaiting() == null)
+                .orElse(false);
+    }
+
+    /**
+     * Returns the state of the container, empty while the pod is pending.
+     */
+    private static Optional<V1ContainerState> findContainerState(@Nullable V1PodStatus podStatus, String container) {
+        if (podStatus == null || podStatus.getContainerStatuses() == null) {
+            return Optional.empty();
+        }
+
+        return podStatus.getContainerStatuses().stream()
                 .filter(status -> container.equals(status.getName()))
                 .findFirst()
-                .orElseThrow(() -> new IllegalStateException("Container %s is missing in service pod".formatted(container)));
-        return containerStatus.getState().getWaiting() == null;
+                .map(V1ContainerStatus::getState);
+    }
+
+    private static Map<String, Instant> parseCursors(List<String> cursors) {
+        Map<String, Instant> result = new HashMap<>();
+        for (String cursor : cursors) {
+            int separator = cursor.lastIndexOf(CURSOR_SEPARATOR);
+            try {
+                result.put(cursor.substring(0, separator), Instant.parse(cursor.substring(separator + 1)));
+            } catch (IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid log cursor: %s".formatted(cursor), e);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Strips timestamps from the log lines, skipping the lines not newer than the cursor.
+     * The timestamp of the last complete line becomes the new cursor.
+     */
+    private static GetApplicationLogsResponseDto.LogEntry toLogEntry(String podName, String text, @Nullable Instant cursor) {
+        StringBuilder content = new StringBuilder();
+        Instant last = cursor;
+        int lineStart = 0;
+        int lineEnd;
+        // An incomplete last line is left for the next request
+        while ((lineEnd = text.indexOf('\n', lineStart)) != StringUtils.INDEX_NOT_FOUND) {
+            int separator = text.indexOf(' ', lineStart);
+            Instant timestamp = separator == StringUtils.INDEX_NOT_FOUND || separator > lineEnd
+                    ? null
+                    : parseTimestamp(text.substring(lineStart, separator));
+            if (timestamp == null) {
+                content.append(text, lineStart, lineEnd + 1);
+            } else if (cursor == null || timestamp.isAfter(cursor)) {
+                content.append(text, separator + 1, lineEnd + 1);
+                last = timestamp;
+            }
+
+            lineStart = lineEnd + 1;
+        }
+
+        String nextCursor = last == null ? null : cursorOf(podName, last);
+        return new GetApplicationLogsResponseDto.LogEntry(podName, content.toString(), nextCursor);
+    }
+
+    private static String cursorOf(String podName, Instant timestamp) {
+        return podName + CURSOR_SEPARATOR + timestamp;
+    }
+
+    @Nullable
+    private static Instant parseTimestamp(String text) {
+        try {
+            return Instant.parse(text);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public record LogParameters(
+            Instant sinceTime,
+            Integer sinceSeconds,
+            Integer tailLines,
+            Integer limitBytes,
+            List<String> cursors) {
+    }
+
+    public record DeployParameters(String name, Map<String, String> env) {
+    }
+
+    private record LogsRequest(String name, LogParameters params) {
     }
 }
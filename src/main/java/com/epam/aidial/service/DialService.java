@@ -0,0 +1,121 @@
+package com.epam.aidial.service;
+
+import com.epam.aidial.util.HttpResponseException;
+import com.epam.aidial.util.RetryPolicy;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads metadata of the application sources from DIAL, the same way the build job downloads them.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DialService {
+    private static final String AUTHORIZATION_PREFIX = "Bearer ";
+    private static final String FOLDER = "FOLDER";
+    private static final String FILE = "FILE";
+
+    @Qualifier("dialHttpClient")
+    private final OkHttpClient dialHttpClient;
+
+    private final RetryPolicy retryPolicy;
+
+    @Value("${app.dial-base-url}")
+    private final String dialBaseUrl;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Lists all files of the sources folder with their versions.
+     */
+    public Mono<List<FileMetadata>> listFiles(String sources, @Nullable String apiKey, @Nullable String jwt) {
+        return Mono.fromCallable(() -> HttpUrl.get(dialBaseUrl).resolve("v1/metadata/" + sources))
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Invalid sources path: " + sources)))
+                .flatMapMany(metadataUrl -> getMetadata(metadataUrl, null, apiKey, jwt)
+                        .expand(page -> {
+                            String token = page.path("nextToken").asText(null);
+                            return StringUtils.isEmpty(token) ? Mono.empty() : getMetadata(metadataUrl, token, apiKey, jwt);
+                        }))
+                .flatMapIterable(page -> {
+                    if (!FOLDER.equals(page.path("nodeType").asText())) {
+                        throw new IllegalArgumentException("Sources path must be a folder");
+                    }
+
+                    return page.path("items");
+                })
+                .filter(item -> FILE.equals(item.path("resourceType").asText()))
+                .map(item -> new FileMetadata(
+                        item.path("url").asText(),
+                        item.path("etag").asText(null),
+                        item.path("contentLength").asLong(),
+                        item.path("updatedAt").asLong()))
+                .collectList();
+    }
+
+    private Mono<JsonNode> getMetadata(HttpUrl metadataUrl, @Nullable String token, @Nullable String apiKey, @Nullable String jwt) {
+        Mono<JsonNode> call = Mono.create(sink -> {
+            HttpUrl.Builder url = metadataUrl.newBuilder()
+                    .addQueryParameter("recursive", "true");
+            if (token != null) {
+                url.addQueryParameter("token", token);
+            }
+
+            Request.Builder request = new Request.Builder()
+                    .get()
+                    .url(url.build());
+            if (apiKey != null) {
+                request.header("api-key", apiKey);
+            }
+            if (jwt != null) {
+                request.header("Authorization", AUTHORIZATION_PREFIX + jwt);
+            }
+
+            dialHttpClient.newCall(request.build()).enqueue(new Callback() {
+                @Override
+                public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                    sink.error(e);
+                }
+
+                @Override
+                public void onResponse(@NotNull Call call, @NotNull Response response) {
+                    if (response.isSuccessful()) {
+                        try (response) {
+                            sink.success(objectMapper.readTree(response.body().string()));
+                        } catch (IOException e) {
+                            sink.error(e);
+                        }
+                    } else {
+                        sink.error(HttpResponseException.of(response));
+                    }
+                }
+            });
+        });
+
+        return call.retryWhen(retryPolicy.retry(RetryPolicy::isTransient));
+    }
+
+    /**
+     * Version of a source file: its etag when DIAL provides one, its size and modification time otherwise.
+     */
+    public record FileMetadata(String url, @Nullable String etag, long contentLength, long updatedAt) {
+    }
+}
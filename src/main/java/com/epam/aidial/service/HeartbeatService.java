@@ -19,12 +19,23 @@ public class HeartbeatService {
     public Flux<ServerSentEvent<Object>> setupHeartbeats(Mono<ServerSentEvent<Object>> data) {
         // Share to avoid double invocation
         Mono<ServerSentEvent<Object>> shared = data.share();
-        Flux<ServerSentEvent<Object>> heartbeats = Flux.interval(
-                Duration.ZERO,
-                Duration.ofSeconds(heartbeatPeriodSec))
-                .map(ignore -> SseUtils.heartbeat())
+        Flux<ServerSentEvent<Object>> heartbeats = heartbeats()
                 .takeUntilOther(shared);
 
         return Flux.concat(heartbeats, shared);
     }
+
+    public Flux<ServerSentEvent<Object>> setupStreamHeartbeats(Flux<ServerSentEvent<Object>> data) {
+        // Publish to avoid double invocation
+        return data.publish(shared -> Flux.merge(
+                shared,
+                heartbeats().takeUntilOther(shared.then())));
+    }
+
+    private Flux<ServerSentEvent<Object>> heartbeats() {
+        return Flux.interval(
+                Duration.ZERO,
+                Duration.ofSeconds(heartbeatPeriodSec))
+                .map(ignore -> SseUtils.heartbeat());
+    }
 }
@@ -0,0 +1,123 @@
+package com.epam.aidial.service;
+
+import com.epam.aidial.dto.DeleteUnusedImagesProgressDto;
+import com.epam.aidial.kubernetes.KubernetesClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.epam.aidial.util.NamingUtils.appName;
+import static com.epam.aidial.util.NamingUtils.buildJobName;
+import static com.epam.aidial.util.NamingUtils.dialAuthSecretName;
+
+/**
+ * Deletes images left in the registry after their applications have been cleaned up by other means,
+ * e.g. resources deleted directly in Kubernetes.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageCleanupService {
+    private final KubernetesService kubernetesService;
+    private final RegistryService registryService;
+
+    @Value("${app.build-namespace}")
+    private final String buildNamespace;
+
+    @Value("${app.deploy-namespace}")
+    private final String deployNamespace;
+
+    @Value("${app.image-cleanup-concurrency}")
+    private final int concurrency;
+
+    /**
+     * Deletes images of the applications having neither a build job, a secret nor a service.
+     *
+     * @param dryRun whether to only report the unused images
+     */
+    public Flux<DeleteUnusedImagesProgressDto> deleteUnusedImages(boolean dryRun) {
+        // Applications created during the scan are not in these lists, so each one is checked again before its image is deleted
+        return registryService.listImages()
+                .collectList()
+                .flatMap(images -> usedResources().map(used -> images.stream()
+                        .filter(name -> !used.contains(name))
+                        .toList()))
+                .flatMapMany(this::withImage)
+                .collectList()
+                .flatMapMany(unused -> {
+                    log.info("Found {} unused images", unused.size());
+                    AtomicInteger processed = new AtomicInteger();
+                    return Flux.fromIterable(unused)
+                            .flatMap(name -> deleteImage(name, dryRun)
+                                    .map(deleted -> new DeleteUnusedImagesProgressDto(
+                                            name, deleted, null, processed.incrementAndGet(), unused.size()))
+                                    .onErrorResume(e -> {
+                                        log.error("Failed to delete unused image {}", name, e);
+                                        return Mono.just(new DeleteUnusedImagesProgressDto(
+                                                name, false, e.getMessage(), processed.incrementAndGet(), unused.size()));
+                                    }), concurrency);
+                });
+    }
+
+    private Mono<UsedResources> usedResources() {
+        KubernetesClient buildClient = kubernetesService.buildClient();
+        KubernetesClient deployClient = kubernetesService.deployClient();
+        return Mono.zip(
+                buildClient.listJobNames(buildNamespace),
+                buildClient.listSecretNames(buildNamespace),
+                deployClient.listKnativeServiceNames(deployNamespace, kubernetesService.getKnativeServiceVersion()))
+                .map(resources -> new UsedResources(resources.getT1(), resources.getT2(), resources.getT3()));
+    }
+
+    /**
+     * Skips the repositories whose image label has already been deleted.
+     */
+    private Flux<String> withImage(List<String> names) {
+        return Flux.fromIterable(names)
+                .flatMap(name -> registryService.hasImage(name)
+                        .filter(Boolean::booleanValue)
+                        .map(ignore -> name), concurrency);
+    }
+
+    private Mono<Boolean> deleteImage(String name, boolean dryRun) {
+        if (dryRun) {
+            return Mono.just(false);
+        }
+
+        // The digest is read before the check, so that an image pushed by a build started after the check has another digest
+        return registryService.getDigest(name, true)
+                .filterWhen(digest -> isUnused(name))
+                .flatMap(digest -> registryService.deleteManifest(name, digest))
+                .defaultIfEmpty(false);
+    }
+
+    private Mono<Boolean> isUnused(String name) {
+        KubernetesClient buildClient = kubernetesService.buildClient();
+        KubernetesClient deployClient = kubernetesService.deployClient();
+        return Mono.zip(
+                buildClient.hasJob(buildNamespace, buildJobName(name)),
+                buildClient.hasSecret(buildNamespace, dialAuthSecretName(name)),
+                deployClient.hasKnativeService(deployNamespace, appName(name), kubernetesService.getKnativeServiceVersion()))
+                .map(resources -> !resources.getT1() && !resources.getT2() && !resources.getT3())
+                .doOnNext(unused -> {
+                    if (!unused) {
+                        log.info("Keeping image {} of the application created during the scan", name);
+                    }
+                });
+    }
+
+    private record UsedResources(Set<String> jobs, Set<String> secrets, Set<String> services) {
+        boolean contains(String name) {
+            return jobs.contains(buildJobName(name))
+                    || secrets.contains(dialAuthSecretName(name))
+                    || services.contains(appName(name));
+        }
+    }
+}
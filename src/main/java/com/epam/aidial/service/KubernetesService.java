@@ -1,14 +1,22 @@
 package com.epam.aidial.service;
 
+import com.epam.aidial.kubernetes.ApiRateLimiter;
 import com.epam.aidial.kubernetes.KubernetesClient;
+import com.epam.aidial.kubernetes.ResourceWatchers;
+import com.epam.aidial.util.CircuitBreaker;
+import com.epam.aidial.util.RetryPolicy;
 import io.kubernetes.client.openapi.ApiClient;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.scheduler.Scheduler;
 
+import java.time.Duration;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 @Service
 @RequiredArgsConstructor
@@ -19,21 +27,72 @@ public class KubernetesService {
     @Qualifier("deployKubeClient")
     private final ApiClient deployClient;
 
+    private final Scheduler kubernetesScheduler;
+
+    private final MeterRegistry meterRegistry;
+
+    private final RetryPolicy retryPolicy;
+
     @Getter
     @Value("${app.service-config.apiVersion}")
     private final String knativeServiceVersion;
 
+    @Value("${app.pod-cache-enabled}")
+    private final boolean podCacheEnabled;
+
+    @Value("${app.kubernetes-rate-limit}")
+    private final double rateLimit;
+
+    @Value("${app.kubernetes-rate-burst}")
+    private final int rateBurst;
+
+    @Value("${app.circuit-breaker-failure-threshold}")
+    private final int circuitBreakerFailureThreshold;
+
+    @Value("${app.circuit-breaker-open-duration-sec}")
+    private final int circuitBreakerOpenDurationSec;
+
+    private ResourceWatchers buildWatchers;
+
+    private ResourceWatchers deployWatchers;
+
+    private ApiRateLimiter buildRateLimiter;
+
+    private ApiRateLimiter deployRateLimiter;
+
+    private CircuitBreaker buildCircuitBreaker;
+
+    private CircuitBreaker deployCircuitBreaker;
+
     @PostConstruct
     private void initialize() {
         KubernetesClient.addKnativeServiceToModelMap(knativeServiceVersion);
+        buildWatchers = new ResourceWatchers("build", buildClient, kubernetesScheduler, meterRegistry);
+        deployWatchers = new ResourceWatchers("deploy", deployClient, kubernetesScheduler, meterRegistry);
+        buildRateLimiter = new ApiRateLimiter("build", rateLimit, rateBurst, meterRegistry);
+        deployRateLimiter = new ApiRateLimiter("deploy", rateLimit, rateBurst, meterRegistry);
+        buildCircuitBreaker = circuitBreaker("Kubernetes build API");
+        deployCircuitBreaker = circuitBreaker("Kubernetes deploy API");
+    }
+
+    @PreDestroy
+    private void destroy() {
+        buildWatchers.stop();
+        deployWatchers.stop();
     }
 
     public KubernetesClient buildClient() {
-        return new KubernetesClient(buildClient);
+        return new KubernetesClient(
+                buildClient, buildWatchers, buildRateLimiter, buildCircuitBreaker, retryPolicy, kubernetesScheduler, podCacheEnabled);
     }
 
     public KubernetesClient deployClient() {
-        return new KubernetesClient(deployClient);
+        return new KubernetesClient(
+                deployClient, deployWatchers, deployRateLimiter, deployCircuitBreaker, retryPolicy, kubernetesScheduler, podCacheEnabled);
     }
 
+    private CircuitBreaker circuitBreaker(String name) {
+        return new CircuitBreaker(name, circuitBreakerFailureThreshold, Duration.ofSeconds(circuitBreakerOpenDurationSec),
+                RetryPolicy::isTransient, meterRegistry);
+    }
 }
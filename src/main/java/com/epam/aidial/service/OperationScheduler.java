@@ -0,0 +1,147 @@
+package com.epam.aidial.service;
+
+import com.epam.aidial.config.AppConfiguration;
+import com.epam.aidial.dto.ErrorResponseDto;
+import com.epam.aidial.dto.QueuePositionDto;
+import com.epam.aidial.util.AdmissionQueue;
+import com.epam.aidial.util.SingleFlight;
+import com.epam.aidial.util.SseUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+
+/**
+ * Admits builds and deploys through per-type queues, attaching identical requests for an application to the operation in flight.
+ *
+ * <p>An operation is cancelled when all its callers have gone or when it's cancelled explicitly by name.
+ */
+@Service
+@RequiredArgsConstructor
+public class OperationScheduler {
+    public static final String DEFAULT_TENANT = "default";
+
+    private final AppConfiguration appConfiguration;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.max-running-builds}")
+    private final int maxRunningBuilds;
+
+    @Value("${app.max-running-builds-per-tenant}")
+    private final int maxRunningBuildsPerTenant;
+
+    @Value("${app.max-running-deploys}")
+    private final int maxRunningDeploys;
+
+    @Value("${app.max-running-deploys-per-tenant}")
+    private final int maxRunningDeploysPerTenant;
+
+    private final SingleFlight<OperationKey, ServerSentEvent<Object>> operations = new SingleFlight<>();
+
+    private final Map<OperationType, AdmissionQueue> queues = new EnumMap<>(OperationType.class);
+
+    private final Set<Cancellation> cancellations = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    private void initialize() {
+        queues.put(OperationType.BUILD, queue(OperationType.BUILD, maxRunningBuilds, maxRunningBuildsPerTenant));
+        queues.put(OperationType.DEPLOY, queue(OperationType.DEPLOY, maxRunningDeploys, maxRunningDeploysPerTenant));
+    }
+
+    /**
+     * Runs the operation once admitted, sending its queue position while it waits.
+     * One operation of the type runs for the application at a time.
+     *
+     * @param name name of the application the operation is run for
+     * @param parameters parameters of the operation without the credentials, a request with equal parameters attaches
+     *                   to the operation in flight and a request with other parameters receives an error event
+     */
+    public Flux<ServerSentEvent<Object>> schedule(
+            OperationType type, String tenant, String name, Object parameters, Supplier<Flux<ServerSentEvent<Object>>> operation) {
+        return operations.execute(new OperationKey(type, name), parameters,
+                () -> cancellable(type, name, queues.get(type).submit(
+                        tenant, Flux.defer(operation), position -> SseUtils.queue(new QueuePositionDto(position)))),
+                () -> Flux.just(SseUtils.error(new ErrorResponseDto(
+                        "Another %s of %s with other parameters is in progress".formatted(type.name().toLowerCase(), name)))));
+    }
+
+    /**
+     * Cancels the running and waiting operations of the type for the application.
+     * Their callers receive an error event.
+     *
+     * @return whether there was an operation to cancel
+     */
+    public boolean cancel(OperationType type, String name) {
+        boolean cancelled = false;
+        for (Cancellation cancellation : cancellations) {
+            if (cancellation.type == type && cancellation.name.equals(name)) {
+                cancelled |= cancellation.cancel();
+            }
+        }
+
+        return cancelled;
+    }
+
+    private Flux<ServerSentEvent<Object>> cancellable(OperationType type, String name, Flux<ServerSentEvent<Object>> operation) {
+        return Flux.defer(() -> {
+            Cancellation cancellation = new Cancellation(type, name);
+            cancellations.add(cancellation);
+            return operation
+                    .takeUntilOther(cancellation.signal.asMono().thenReturn(Boolean.TRUE))
+                    .concatWith(Mono.fromSupplier(() -> cancellation.cancelled.get()
+                            ? SseUtils.error(new ErrorResponseDto("Operation has been cancelled"))
+                            : null))
+                    .doFinally(signal -> cancellations.remove(cancellation));
+        });
+    }
+
+    private AdmissionQueue queue(OperationType type, int maxRunning, int maxRunningPerTenant) {
+        Map<String, Integer> weights = appConfiguration.getTenantWeights();
+        // Requests without the tenant header may come from any number of callers, so only the total limit applies to them
+        return new AdmissionQueue(type.name().toLowerCase(), maxRunning,
+                tenant -> DEFAULT_TENANT.equals(tenant) ? 0 : maxRunningPerTenant,
+                tenant -> weights.getOrDefault(tenant, 1), meterRegistry);
+    }
+
+    public enum OperationType {
+        BUILD,
+        DEPLOY
+    }
+
+    private record OperationKey(OperationType type, String name) {
+    }
+
+    private static class Cancellation {
+        private final OperationType type;
+        private final String name;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final Sinks.Empty<Void> signal = Sinks.empty();
+
+        Cancellation(OperationType type, String name) {
+            this.type = type;
+            this.name = name;
+        }
+
+        boolean cancel() {
+            if (!cancelled.compareAndSet(false, true)) {
+                return false;
+            }
+
+            signal.tryEmitEmpty();
+            return true;
+        }
+    }
+}
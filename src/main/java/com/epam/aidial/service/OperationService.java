@@ -0,0 +1,169 @@
+package com.epam.aidial.service;
+
+import com.epam.aidial.dto.ErrorResponseDto;
+import com.epam.aidial.dto.OperationDto;
+import com.epam.aidial.util.SseUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps operations running in the background, so that their callers can poll them or reattach to their events.
+ *
+ * <p>The store is bounded: completed operations are forgotten after the retention period or,
+ * when the store is full, oldest first. New operations are rejected while the store is full of running ones.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OperationService {
+    @Value("${app.operation-store-max-size}")
+    private final int maxSize;
+
+    @Value("${app.operation-retention-sec}")
+    private final int retentionSec;
+
+    @Value("${app.operation-max-events}")
+    private final int maxEvents;
+
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+
+    /**
+     * Runs the operation until it completes or is cancelled by name, regardless of the callers.
+     */
+    public OperationDto start(OperationScheduler.OperationType type, String name, Flux<ServerSentEvent<Object>> events) {
+        Operation operation = new Operation(UUID.randomUUID().toString(), type, name, Instant.now(), maxEvents);
+        synchronized (this) {
+            evict(Instant.now());
+            if (operations.size() >= maxSize) {
+                throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many operations in progress");
+            }
+
+            operations.put(operation.id, operation);
+        }
+
+        log.info("Starting operation {} of {} {}", operation.id, type, name);
+        events.subscribe(operation::accept, operation::fail, operation::complete);
+        return operation.toDto();
+    }
+
+    public OperationDto get(String id) {
+        return find(id).toDto();
+    }
+
+    /**
+     * Returns the events of the operation following the last received one, numbered by their ids.
+     * The earliest events may have been dropped if the operation has sent too many of them.
+     */
+    public Flux<ServerSentEvent<Object>> events(String id, @Nullable String lastEventId) {
+        Operation operation = find(id);
+        long last = parseEventId(lastEventId);
+        return operation.events.asFlux()
+                .filter(event -> Long.parseLong(event.id()) > last);
+    }
+
+    private synchronized Operation find(String id) {
+        evict(Instant.now());
+        Operation operation = operations.get(id);
+        if (operation == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Operation %s is not found".formatted(id));
+        }
+
+        return operation;
+    }
+
+    private void evict(Instant now) {
+        Instant expired = now.minus(Duration.ofSeconds(retentionSec));
+        operations.values().removeIf(operation -> operation.isCompletedBefore(expired));
+
+        Iterator<Operation> iterator = operations.values().iterator();
+        while (operations.size() >= maxSize && iterator.hasNext()) {
+            if (iterator.next().isCompletedBefore(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static long parseEventId(@Nullable String eventId) {
+        if (eventId == null) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(eventId.trim());
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid event id: %s".formatted(eventId), e);
+        }
+    }
+
+    private static class Operation {
+        private final String id;
+        private final OperationScheduler.OperationType type;
+        private final String name;
+        private final Instant createdAt;
+        private final Sinks.Many<ServerSentEvent<Object>> events;
+        private long sequence;
+        private OperationDto.Status status = OperationDto.Status.RUNNING;
+        private Object result;
+        private String error;
+        private Instant completedAt;
+
+        Operation(String id, OperationScheduler.OperationType type, String name, Instant createdAt, int maxEvents) {
+            this.id = id;
+            this.type = type;
+            this.name = name;
+            this.createdAt = createdAt;
+            this.events = Sinks.many().replay().limit(maxEvents);
+        }
+
+        synchronized void accept(ServerSentEvent<Object> event) {
+            if (event.data() instanceof ErrorResponseDto errorResponse) {
+                status = OperationDto.Status.FAILED;
+                error = errorResponse.message();
+            } else if (SseUtils.RESULT.equals(event.event())) {
+                status = OperationDto.Status.SUCCEEDED;
+                result = event.data();
+            }
+
+            events.tryEmitNext(SseUtils.withId(event, ++sequence));
+        }
+
+        void fail(Throwable e) {
+            accept(SseUtils.error(new ErrorResponseDto(e.getMessage())));
+            complete();
+        }
+
+        synchronized void complete() {
+            if (status == OperationDto.Status.RUNNING) {
+                status = OperationDto.Status.FAILED;
+                error = "Operation has completed without a result";
+            }
+
+            completedAt = Instant.now();
+            log.info("Operation {} of {} {} has completed: {}", id, type, name, status);
+            events.tryEmitComplete();
+        }
+
+        synchronized boolean isCompletedBefore(Instant time) {
+            return completedAt != null && !completedAt.isAfter(time);
+        }
+
+        synchronized OperationDto toDto() {
+            return new OperationDto(id, type, name, status, result, error, createdAt, completedAt);
+        }
+    }
+}
@@ -1,29 +1,59 @@
 package com.epam.aidial.service;
 
+import com.epam.aidial.util.CircuitBreaker;
+import com.epam.aidial.util.ExpiringCache;
+import com.epam.aidial.util.HttpResponseException;
+import com.epam.aidial.util.RetryPolicy;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.net.URI;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.StreamSupport;
+import javax.annotation.PostConstruct;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RegistryService {
     private static final String MANIFEST_URL_TEMPLATE = "%s://%s/v2/%s/manifests/%s";
+    private static final String CATALOG_URL_TEMPLATE = "%s://%s/v2/_catalog?n=%d";
+    private static final String TAGS_URL_TEMPLATE = "%s://%s/v2/%s/tags/list";
+    private static final String BLOB_URL_TEMPLATE = "%s://%s/v2/%s/blobs/%s";
+    private static final String JSON_MEDIA_TYPE = "application/json";
+    private static final int CATALOG_PAGE_SIZE = 1000;
+    private static final Pattern NEXT_LINK_PATTERN = Pattern.compile("<([^>]+)>\\s*;\\s*rel=\"?next\"?");
+    private static final String MANIFEST_MEDIA_TYPES = String.join(", ",
+            "application/vnd.oci.image.manifest.v1+json",
+            "application/vnd.docker.distribution.manifest.v2+json");
+    @Qualifier("okHttpClient")
     private final OkHttpClient okHttpClient;
 
+    private final RetryPolicy retryPolicy;
+
+    private final MeterRegistry meterRegistry;
+
     @Value("${app.docker-registry}")
     private final String dockerRegistry;
 
@@ -36,21 +66,80 @@ public class RegistryService {
     @Value("${app.image-label}")
     private final String imageLabel;
 
+    @Value("${app.circuit-breaker-failure-threshold}")
+    private final int circuitBreakerFailureThreshold;
+
+    @Value("${app.circuit-breaker-open-duration-sec}")
+    private final int circuitBreakerOpenDurationSec;
+
+    @Value("${app.digest-cache-ttl-sec}")
+    private final int digestCacheTtlSec;
+
+    @Value("${app.digest-cache-max-size}")
+    private final int digestCacheMaxSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private CircuitBreaker circuitBreaker;
+
+    private ExpiringCache<String, String> digestCache;
+
+    private Counter digestCacheHits;
+
+    private Counter digestCacheMisses;
+
+    private Pattern imageNamePattern;
+
+    @PostConstruct
+    private void initialize() {
+        circuitBreaker = new CircuitBreaker("Docker registry", circuitBreakerFailureThreshold,
+                Duration.ofSeconds(circuitBreakerOpenDurationSec), RetryPolicy::isTransient, meterRegistry);
+        digestCache = new ExpiringCache<>(Duration.ofSeconds(digestCacheTtlSec), digestCacheMaxSize);
+        digestCacheHits = digestCacheCounter("hit");
+        digestCacheMisses = digestCacheCounter("miss");
+        imageNamePattern = imageNamePattern(imageFormat);
+    }
+
     public Mono<String> getDigest(String image) {
-        return getDigest("application/vnd.oci.image.manifest.v1+json", image)
-                .switchIfEmpty(getDigest("application/vnd.docker.distribution.manifest.v2+json", image));
+        return getDigest(image, false);
+    }
+
+    /**
+     * Returns the digest of the image label.
+     *
+     * @param live whether to ask the registry instead of the cache, e.g. when the digest is about to be deleted
+     */
+    public Mono<String> getDigest(String image, boolean live) {
+        if (live) {
+            return retrieveDigest(image)
+                    .doOnNext(retrieved -> digestCache.put(fullImageName(image), retrieved));
+        }
+
+        return Mono.defer(() -> {
+            String key = fullImageName(image);
+            String digest = digestCache.get(key);
+            if (digest != null) {
+                digestCacheHits.increment();
+                return Mono.just(digest);
+            }
+
+            digestCacheMisses.increment();
+            return retrieveDigest(image)
+                    .doOnNext(retrieved -> digestCache.put(key, retrieved));
+        });
     }
 
-    private Mono<String> getDigest(String manifestVersion, String name) {
-        return Mono.create(sink -> {
+    private Mono<String> retrieveDigest(String name) {
+        return send(Mono.create(sink -> {
             String imageName = imageName(name);
-            log.info("Retrieving digest for {} from manifest {}", imageName, manifestVersion);
+            log.info("Retrieving digest for {}", imageName);
             String url = MANIFEST_URL_TEMPLATE.formatted(
                     dockerRegistryProtocol, dockerRegistry, imageName, imageLabel);
             Request request = new Request.Builder()
                     .head()
                     .url(url)
-                    .header("Accept", manifestVersion)
+                    // The registry picks the media type of the stored manifest, so one request is enough for both
+                    .header("Accept", MANIFEST_MEDIA_TYPES)
                     .build();
             okHttpClient.newCall(request).enqueue(new Callback() {
                 @Override
@@ -64,24 +153,32 @@ public class RegistryService {
                         sink.success();
                     } else if (response.isSuccessful()) {
                         String digest = response.header("Docker-Content-Digest");
+                        String mediaType = response.header("Content-Type");
                         if (StringUtils.isBlank(digest)) {
                             sink.error(new IllegalStateException(
-                                    "Missing digest in manifest %s response".formatted(manifestVersion)));
+                                    "Missing digest in manifest %s response".formatted(mediaType)));
                         } else {
                             log.info("Retrieved {} digest for image {} and label {}: {}",
-                                    manifestVersion, imageName, imageLabel, digest);
+                                    mediaType, imageName, imageLabel, digest);
                             sink.success(digest);
                         }
                     } else {
-                        sink.error(new ResponseStatusException(response.code(), response.message(), null));
+                        sink.error(HttpResponseException.of(response));
                     }
                 }
             });
-        });
+        }));
+    }
+
+    /**
+     * Forgets the cached digest of the image, e.g. when the image is rebuilt.
+     */
+    public void evictDigest(String image) {
+        digestCache.remove(fullImageName(image));
     }
 
     public Mono<Boolean> deleteManifest(String name, String digest) {
-        return Mono.create(sink -> {
+        Mono<Boolean> deletion = send(Mono.create(sink -> {
             String imageName = imageName(name);
             log.info("Deleting {} manifest", imageName);
             String url = MANIFEST_URL_TEMPLATE.formatted(
@@ -104,11 +201,126 @@ public class RegistryService {
                         log.info("Deleted image {} with digest {}", imageName, digest);
                         sink.success(true);
                     } else {
-                        sink.error(new ResponseStatusException(response.code(), response.message(), null));
+                        sink.error(HttpResponseException.of(response));
                     }
                 }
             });
-        });
+        }));
+
+        return deletion.doFinally(signal -> evictDigest(name));
+    }
+
+    /**
+     * Lists names of the applications having a repository in the registry, following the catalog pages.
+     */
+    public Flux<String> listImages() {
+        String url = CATALOG_URL_TEMPLATE.formatted(dockerRegistryProtocol, dockerRegistry, CATALOG_PAGE_SIZE);
+        return getJson(url, JSON_MEDIA_TYPE)
+                .expand(page -> page.next() == null ? Mono.empty() : getJson(page.next(), JSON_MEDIA_TYPE))
+                .flatMapIterable(page -> page.body().path("repositories"))
+                .mapNotNull(repository -> {
+                    Matcher matcher = imageNamePattern.matcher(repository.asText());
+                    return matcher.matches() ? matcher.group(1) : null;
+                });
+    }
+
+    /**
+     * Checks whether the repository of the application still has the image label, e.g. it's not deleted yet.
+     */
+    public Mono<Boolean> hasImage(String name) {
+        String url = TAGS_URL_TEMPLATE.formatted(dockerRegistryProtocol, dockerRegistry, imageName(name));
+        return getJson(url, JSON_MEDIA_TYPE)
+                .map(page -> StreamSupport.stream(page.body().path("tags").spliterator(), false)
+                        .anyMatch(tag -> imageLabel.equals(tag.asText())))
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * Returns the value of a label in the image config, e.g. set with {@code --label} at build time.
+     */
+    public Mono<String> getImageLabel(String name, String label) {
+        String imageName = imageName(name);
+        String manifestUrl = MANIFEST_URL_TEMPLATE.formatted(dockerRegistryProtocol, dockerRegistry, imageName, imageLabel);
+        return getJson(manifestUrl, MANIFEST_MEDIA_TYPES)
+                .mapNotNull(manifest -> manifest.body().path("config").path("digest").asText(null))
+                .flatMap(configDigest -> getJson(
+                        BLOB_URL_TEMPLATE.formatted(dockerRegistryProtocol, dockerRegistry, imageName, configDigest), JSON_MEDIA_TYPE))
+                .mapNotNull(config -> config.body().path("config").path("Labels").path(label).asText(null));
+    }
+
+    private Mono<JsonPage> getJson(String url, String accept) {
+        return send(Mono.create(sink -> {
+            Request request = new Request.Builder()
+                    .get()
+                    .url(url)
+                    .header("Accept", accept)
+                    .build();
+            okHttpClient.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                    sink.error(e);
+                }
+
+                @Override
+                public void onResponse(@NotNull Call call, @NotNull Response response) {
+                    if (response.code() == 404) {
+                        response.close();
+                        sink.success();
+                    } else if (response.isSuccessful()) {
+                        try (response) {
+                            JsonNode body = objectMapper.readTree(response.body().string());
+                            sink.success(new JsonPage(body, nextPage(response)));
+                        } catch (IOException e) {
+                            sink.error(e);
+                        }
+                    } else {
+                        sink.error(HttpResponseException.of(response));
+                    }
+                }
+            });
+        }));
+    }
+
+    /**
+     * Sends an idempotent registry call, retrying it on transient errors.
+     * The circuit breaker counts a failure once the retries are exhausted.
+     */
+    private <T> Mono<T> send(Mono<T> call) {
+        return circuitBreaker.protect(call
+                .retryWhen(retryPolicy.retry(RetryPolicy::isTransient)));
+    }
+
+    private Counter digestCacheCounter(String result) {
+        return Counter.builder("app.registry.digest.cache")
+                .description("Number of image digest lookups served from the cache or the registry")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Nullable
+    private static String nextPage(Response response) {
+        String link = response.header("Link");
+        if (link == null) {
+            return null;
+        }
+
+        Matcher matcher = NEXT_LINK_PATTERN.matcher(link);
+        if (!matcher.find()) {
+            return null;
+        }
+
+        // The link is usually relative to the registry
+        HttpUrl next = response.request().url().resolve(matcher.group(1));
+        return next == null ? null : next.toString();
+    }
+
+    private static Pattern imageNamePattern(String imageFormat) {
+        String[] parts = imageFormat.split("%s", -1);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Image name format must have exactly one placeholder: " + imageFormat);
+        }
+
+        return Pattern.compile(Pattern.quote(parts[0]) + "(.+)" + Pattern.quote(parts[1]));
     }
 
     public String fullImageName(String name) {
@@ -118,4 +330,7 @@ public class RegistryService {
     private String imageName(String name) {
         return imageFormat.formatted(name);
     }
+
+    private record JsonPage(JsonNode body, @Nullable String next) {
+    }
 }
@@ -0,0 +1,261 @@
+package com.epam.aidial.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Limits the number of operations running at once, in total and per tenant.
+ *
+ * <p>Waiting operations are admitted in weighted fair order: a tenant gets a share of the free slots
+ * proportional to its weight, however many operations it has queued. A tenant that has been idle
+ * doesn't get credit for it, its share starts from the current virtual time. Ties are broken in the order of arrival.
+ */
+public class AdmissionQueue {
+    private static final String QUEUED_METRIC = "app.operations.queued";
+    private static final String RUNNING_METRIC = "app.operations.running";
+    private static final String WAIT_METRIC = "app.operations.queue.wait";
+
+    private final int maxRunning;
+    private final ToIntFunction<String> maxRunningPerTenant;
+    private final ToIntFunction<String> weights;
+    private final Map<String, Tenant> tenants = new HashMap<>();
+    private final Timer waitTimer;
+    private final Scheduler scheduler = Schedulers.parallel();
+    private int running;
+    private int queued;
+    private long sequence;
+    private double virtualTime;
+
+    /**
+     * Creates a queue.
+     *
+     * @param maxRunning maximum number of operations running at once, a non-positive value disables the queue
+     * @param maxRunningPerTenant maximum numbers of operations of the tenants running at once, a non-positive value disables the limit
+     * @param weights relative shares of the tenants
+     */
+    public AdmissionQueue(
+            String type, int maxRunning, ToIntFunction<String> maxRunningPerTenant, ToIntFunction<String> weights, MeterRegistry meterRegistry) {
+        this.maxRunning = maxRunning;
+        this.maxRunningPerTenant = maxRunningPerTenant;
+        this.weights = weights;
+        Gauge.builder(QUEUED_METRIC, this, AdmissionQueue::getQueued)
+                .description("Number of operations waiting to be admitted")
+                .tag("type", type)
+                .register(meterRegistry);
+        Gauge.builder(RUNNING_METRIC, this, AdmissionQueue::getRunning)
+                .description("Number of admitted operations")
+                .tag("type", type)
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder(WAIT_METRIC)
+                .description("Time operations wait to be admitted")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the operation once it's admitted.
+     * While the operation waits, its estimated position in the queue is emitted whenever it changes.
+     */
+    public <T> Flux<T> submit(String tenant, Flux<T> operation, IntFunction<T> positionEvent) {
+        if (maxRunning <= 0) {
+            return operation;
+        }
+
+        return Flux.defer(() -> {
+            Waiter waiter = new Waiter(tenant, scheduler.now(TimeUnit.NANOSECONDS));
+            Flux<T> waiting = Flux.create(sink -> {
+                waiter.positionListener = position -> sink.next(positionEvent.apply(position));
+                waiter.admitListener = sink::complete;
+                // The slot is released here if the caller has gone after admission but before the operation has started
+                sink.onCancel(() -> cancel(waiter));
+                enqueue(waiter);
+            });
+
+            return waiting.concatWith(operation.doFinally(signal -> release(waiter)));
+        });
+    }
+
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    private void enqueue(Waiter waiter) {
+        synchronized (this) {
+            Tenant tenant = tenants.computeIfAbsent(waiter.tenant, this::tenant);
+            if (tenant.waiting.isEmpty()) {
+                tenant.pass = Math.max(tenant.pass, virtualTime);
+            }
+            waiter.sequence = ++sequence;
+            tenant.waiting.add(waiter);
+            ++queued;
+        }
+        drain();
+    }
+
+    private void cancel(Waiter waiter) {
+        boolean removed;
+        synchronized (this) {
+            Tenant tenant = tenants.get(waiter.tenant);
+            removed = tenant != null && tenant.waiting.remove(waiter);
+            if (removed) {
+                --queued;
+                forgetIfIdle(waiter.tenant, tenant);
+            }
+        }
+
+        if (removed) {
+            drain();
+        } else {
+            release(waiter);
+        }
+    }
+
+    private void release(Waiter waiter) {
+        if (!waiter.admitted.get() || !waiter.released.compareAndSet(false, true)) {
+            return;
+        }
+
+        synchronized (this) {
+            Tenant tenant = tenants.get(waiter.tenant);
+            --tenant.running;
+            --running;
+            forgetIfIdle(waiter.tenant, tenant);
+        }
+        drain();
+    }
+
+    private void drain() {
+        List<Waiter> admitted = new ArrayList<>();
+        List<Runnable> notifications = new ArrayList<>();
+        long now = scheduler.now(TimeUnit.NANOSECONDS);
+        synchronized (this) {
+            while (running < maxRunning) {
+                Tenant next = null;
+                for (Tenant tenant : tenants.values()) {
+                    if (!tenant.waiting.isEmpty() && tenant.running < tenant.maxRunning
+                            && (next == null || isBefore(tenant.pass, tenant.waiting.peek(), next.pass, next.waiting.peek()))) {
+                        next = tenant;
+                    }
+                }
+                if (next == null) {
+                    break;
+                }
+
+                Waiter waiter = next.waiting.poll();
+                waiter.admitted.set(true);
+                virtualTime = next.pass;
+                next.pass += 1.0 / next.weight;
+                ++next.running;
+                ++running;
+                --queued;
+                admitted.add(waiter);
+            }
+
+            updatePositions(notifications);
+        }
+
+        // Notify outside the lock since admission runs the operations
+        notifications.forEach(Runnable::run);
+        for (Waiter waiter : admitted) {
+            waitTimer.record(now - waiter.queuedAt, TimeUnit.NANOSECONDS);
+            waiter.admitListener.run();
+        }
+    }
+
+    /**
+     * Estimates the order of admission of the waiting operations, regardless of the per-tenant limit.
+     */
+    private void updatePositions(List<Runnable> notifications) {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>((first, second) -> isBefore(first.pass(), first.waiter(), second.pass(), second.waiter()) ? -1 : 1);
+        for (Tenant tenant : tenants.values()) {
+            if (!tenant.waiting.isEmpty()) {
+                Iterator<Waiter> waiters = tenant.waiting.iterator();
+                cursors.add(new Cursor(tenant, waiters, waiters.next(), tenant.pass));
+            }
+        }
+
+        int position = 0;
+        while (!cursors.isEmpty()) {
+            Cursor cursor = cursors.poll();
+            Waiter waiter = cursor.waiter();
+            if (waiter.position != ++position) {
+                waiter.position = position;
+                IntConsumer listener = waiter.positionListener;
+                int current = position;
+                notifications.add(() -> listener.accept(current));
+            }
+            if (cursor.waiters().hasNext()) {
+                cursors.add(new Cursor(cursor.tenant(), cursor.waiters(), cursor.waiters().next(), cursor.pass() + 1.0 / cursor.tenant().weight));
+            }
+        }
+    }
+
+    private Tenant tenant(String name) {
+        int maxRunning = maxRunningPerTenant.applyAsInt(name);
+        return new Tenant(Math.max(weights.applyAsInt(name), 1), maxRunning > 0 ? maxRunning : Integer.MAX_VALUE);
+    }
+
+    private static boolean isBefore(double pass, Waiter waiter, double otherPass, Waiter otherWaiter) {
+        return pass < otherPass || pass == otherPass && waiter.sequence < otherWaiter.sequence;
+    }
+
+    private void forgetIfIdle(String name, Tenant tenant) {
+        if (tenant.running == 0 && tenant.waiting.isEmpty()) {
+            tenants.remove(name);
+        }
+    }
+
+    private static class Tenant {
+        private final int weight;
+        private final int maxRunning;
+        private final Queue<Waiter> waiting = new ArrayDeque<>();
+        private int running;
+        private double pass;
+
+        Tenant(int weight, int maxRunning) {
+            this.weight = weight;
+            this.maxRunning = maxRunning;
+        }
+    }
+
+    private static class Waiter {
+        private final String tenant;
+        private final long queuedAt;
+        private final AtomicBoolean admitted = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private IntConsumer positionListener;
+        private Runnable admitListener;
+        private long sequence;
+        private int position;
+
+        Waiter(String tenant, long queuedAt) {
+            this.tenant = tenant;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    private record Cursor(Tenant tenant, Iterator<Waiter> waiters, Waiter waiter, double pass) {
+    }
+}
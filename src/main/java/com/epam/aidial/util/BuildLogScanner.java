@@ -0,0 +1,91 @@
+package com.epam.aidial.util;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Scans build log line by line, keeping only the text that can end up in an error message:
+ * the tail of the log and the text following the validation error marker.
+ */
+public class BuildLogScanner {
+    private final String marker;
+    private final int maxLines;
+    private final int maxChars;
+    private final Deque<String> tail = new ArrayDeque<>();
+    private int tailChars;
+    private int tailNonEmptyLines;
+    private StringBuilder markedText;
+
+    public BuildLogScanner(String marker, int maxLines, int maxChars) {
+        this.marker = marker;
+        this.maxLines = maxLines;
+        this.maxChars = maxChars;
+    }
+
+    public BuildLogScanner accept(String line) {
+        if (markedText != null) {
+            appendMarkedText("\n" + line);
+            return this;
+        }
+
+        int markerIndex = line.indexOf(marker);
+        if (markerIndex != StringUtils.INDEX_NOT_FOUND) {
+            markedText = new StringBuilder();
+            appendMarkedText(line.substring(markerIndex + marker.length()));
+            return this;
+        }
+
+        addToTail(line);
+        return this;
+    }
+
+    /**
+     * Returns the text following the marker or null if the marker hasn't been found.
+     */
+    public String getMarkedText() {
+        return markedText == null ? null : markedText.toString();
+    }
+
+    public String getTail() {
+        StringBuilder text = new StringBuilder(tailChars);
+        tail.forEach(line -> text.append(line).append('\n'));
+        return TextUtils.truncateText(text.toString(), maxLines, maxChars);
+    }
+
+    private void appendMarkedText(String text) {
+        int remaining = maxChars - markedText.length();
+        if (remaining > 0) {
+            markedText.append(text, 0, Math.min(remaining, text.length()));
+        }
+    }
+
+    private void addToTail(String text) {
+        // A longer line can't fit into the truncated text, so only its end is kept to bound the memory
+        String line = text.length() > maxChars ? text.substring(text.length() - maxChars) : text;
+        tail.addLast(line);
+        tailChars += line.length() + 1;
+        if (!isEmptyLine(line)) {
+            ++tailNonEmptyLines;
+        }
+
+        // Drop the lines that can't fit into the truncated text anyway
+        while (tail.size() > 1) {
+            String head = tail.getFirst();
+            int restChars = tailChars - head.length() - 1;
+            int restNonEmptyLines = isEmptyLine(head) ? tailNonEmptyLines : tailNonEmptyLines - 1;
+            if (restChars < maxChars && restNonEmptyLines < maxLines) {
+                break;
+            }
+
+            tail.removeFirst();
+            tailChars = restChars;
+            tailNonEmptyLines = restNonEmptyLines;
+        }
+    }
+
+    private static boolean isEmptyLine(String line) {
+        return StringUtils.containsOnly(line, '\r');
+    }
+}
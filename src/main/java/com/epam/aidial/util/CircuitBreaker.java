@@ -0,0 +1,128 @@
+package com.epam.aidial.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Fails calls fast while an upstream service is degraded.
+ *
+ * <p>After the given number of consecutive failures the circuit opens and calls fail without being made.
+ * Once the open duration passes, a single trial call is let through: its success closes the circuit,
+ * its failure opens it again.
+ */
+@Slf4j
+public class CircuitBreaker {
+    private static final String STATE_METRIC = "app.circuit-breaker.state";
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openDurationMs;
+    private final Predicate<Throwable> isFailure;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean trialInProgress;
+
+    /**
+     * Creates a circuit breaker.
+     *
+     * @param isFailure tells the errors that indicate a degraded service from the ones caused by the call itself
+     */
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration, Predicate<Throwable> isFailure,
+                          MeterRegistry meterRegistry) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDuration.toMillis();
+        this.isFailure = isFailure;
+        Gauge.builder(STATE_METRIC, this, breaker -> breaker.getState().ordinal())
+                .description("Circuit breaker state: 0 - closed, 1 - open, 2 - half-open")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+            boolean trial;
+            synchronized (this) {
+                if (state == State.OPEN) {
+                    if (now() - openedAt < openDurationMs) {
+                        return Mono.error(unavailable());
+                    }
+                    state = State.HALF_OPEN;
+                }
+
+                trial = state == State.HALF_OPEN;
+                if (trial) {
+                    if (trialInProgress) {
+                        return Mono.error(unavailable());
+                    }
+                    trialInProgress = true;
+                }
+            }
+
+            return call
+                    .doOnSuccess(result -> onSuccess())
+                    .doOnError(this::onError)
+                    .doFinally(signal -> {
+                        if (trial) {
+                            endTrial();
+                        }
+                    });
+        });
+    }
+
+    private IllegalStateException unavailable() {
+        return new IllegalStateException("%s is temporarily unavailable".formatted(name));
+    }
+
+    private synchronized void onSuccess() {
+        failures = 0;
+        if (state != State.CLOSED) {
+            log.info("Closing circuit breaker {}", name);
+            state = State.CLOSED;
+        }
+    }
+
+    private synchronized void onError(Throwable error) {
+        if (!isFailure.test(error)) {
+            // The service has answered, but an error caused by the call doesn't prove a trial successful
+            if (state == State.CLOSED) {
+                failures = 0;
+            }
+
+            return;
+        }
+
+        if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            log.warn("Opening circuit breaker {} after {} failures", name, failures);
+            state = State.OPEN;
+            openedAt = now();
+            failures = 0;
+        }
+    }
+
+    private synchronized void endTrial() {
+        trialInProgress = false;
+    }
+
+    private static long now() {
+        return Schedulers.parallel().now(TimeUnit.MILLISECONDS);
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+}
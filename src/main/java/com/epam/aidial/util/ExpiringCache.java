@@ -0,0 +1,69 @@
+package com.epam.aidial.util;
+
+import org.jetbrains.annotations.Nullable;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache which forgets its entries after a time to live.
+ * When the cache is full, the least recently used entry is evicted.
+ */
+public class ExpiringCache<K, V> {
+    private final long ttlMs;
+    private final Map<K, Entry<V>> entries;
+
+    public ExpiringCache(Duration ttl, int maxSize) {
+        this.ttlMs = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Nullable
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.expiresAt() <= now()) {
+            entries.remove(key);
+            return null;
+        }
+
+        return entry.value();
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttlMs);
+    }
+
+    /**
+     * Puts an entry with its own time to live, e.g. when the value tells when it expires.
+     */
+    public void put(K key, V value, Duration ttl) {
+        put(key, value, ttl.toMillis());
+    }
+
+    private synchronized void put(K key, V value, long entryTtlMs) {
+        entries.put(key, new Entry<>(value, now() + entryTtlMs));
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    private static long now() {
+        return Schedulers.parallel().now(TimeUnit.MILLISECONDS);
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.epam.aidial.util;
+
+import okhttp3.Response;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Unsuccessful HTTP response of an upstream service, keeping its headers, e.g. {@code Retry-After}.
+ */
+public class HttpResponseException extends ResponseStatusException {
+    private final HttpHeaders headers;
+
+    public HttpResponseException(int status, String reason, HttpHeaders headers) {
+        super(status, reason, null);
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    /**
+     * Creates the exception from the response and closes it.
+     */
+    public static HttpResponseException of(Response response) {
+        try (response) {
+            HttpHeaders headers = new HttpHeaders();
+            response.headers().toMultimap().forEach(headers::addAll);
+            return new HttpResponseException(response.code(), response.message(), headers);
+        }
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+}
@@ -1,15 +1,18 @@
 package com.epam.aidial.util;
 
+import com.epam.aidial.dto.OperationProgressDto;
 import com.epam.aidial.kubernetes.knative.V1Condition;
 import com.epam.aidial.kubernetes.knative.V1Service;
 import com.epam.aidial.kubernetes.knative.V1ServiceStatus;
 import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.models.V1ContainerStateTerminated;
 import io.kubernetes.client.openapi.models.V1ContainerStatus;
 import io.kubernetes.client.openapi.models.V1Job;
 import io.kubernetes.client.openapi.models.V1JobCondition;
 import io.kubernetes.client.openapi.models.V1JobStatus;
 import io.kubernetes.client.openapi.models.V1Pod;
+import io.kubernetes.client.openapi.models.V1PodCondition;
 import io.kubernetes.client.openapi.models.V1PodList;
 import io.kubernetes.client.openapi.models.V1PodStatus;
 import io.kubernetes.client.util.ClientBuilder;
@@ -25,7 +28,13 @@ import java.io.IOException;
 import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Stream;
@@ -96,6 +105,93 @@ public class KubernetesUtils {
         return null;
     }
 
+    /**
+     * Returns the phases of a build reached by the job.
+     */
+    public Map<OperationProgressDto.Phase, Instant> extractJobPhases(V1Job job) {
+        OffsetDateTime createdAt = job.getMetadata().getCreationTimestamp();
+        return createdAt == null ? Map.of() : Map.of(OperationProgressDto.Phase.JOB_CREATED, createdAt.toInstant());
+    }
+
+    /**
+     * Returns the phases of a build reached by the job pod.
+     * Kaniko builds and pushes the image in one container, so the image is pushed once the container has succeeded.
+     */
+    public Map<OperationProgressDto.Phase, Instant> extractBuildPodPhases(V1Pod pod, String builderContainer) {
+        Map<OperationProgressDto.Phase, Instant> phases = new EnumMap<>(OperationProgressDto.Phase.class);
+        V1PodStatus status = pod.getStatus();
+        if (status == null) {
+            return phases;
+        }
+
+        if (status.getConditions() != null) {
+            status.getConditions().stream()
+                    .filter(condition -> "PodScheduled".equals(condition.getType()) && "True".equals(condition.getStatus()))
+                    .map(V1PodCondition::getLastTransitionTime)
+                    .filter(Objects::nonNull)
+                    .findFirst()
+                    .ifPresent(time -> phases.put(OperationProgressDto.Phase.POD_SCHEDULED, time.toInstant()));
+        }
+
+        List<V1ContainerStatus> initContainers = status.getInitContainerStatuses();
+        if (initContainers != null && !initContainers.isEmpty()
+                && initContainers.stream().allMatch(KubernetesUtils::hasSucceeded)) {
+            initContainers.stream()
+                    .map(container -> container.getState().getTerminated().getFinishedAt())
+                    .filter(Objects::nonNull)
+                    .max(Comparator.naturalOrder())
+                    .ifPresent(time -> phases.put(OperationProgressDto.Phase.SOURCES_DOWNLOADED, time.toInstant()));
+        }
+
+        Optional.ofNullable(status.getContainerStatuses())
+                .flatMap(containers -> containers.stream()
+                        .filter(container -> builderContainer.equals(container.getName()))
+                        .findFirst())
+                .map(V1ContainerStatus::getState)
+                .ifPresent(state -> {
+                    OffsetDateTime startedAt = state.getRunning() != null
+                            ? state.getRunning().getStartedAt()
+                            : state.getTerminated() != null ? state.getTerminated().getStartedAt() : null;
+                    if (startedAt != null) {
+                        phases.put(OperationProgressDto.Phase.BUILD_STARTED, startedAt.toInstant());
+                    }
+
+                    V1ContainerStateTerminated terminated = state.getTerminated();
+                    if (terminated != null && terminated.getExitCode() == 0 && terminated.getFinishedAt() != null) {
+                        phases.put(OperationProgressDto.Phase.IMAGE_PUSHED, terminated.getFinishedAt().toInstant());
+                    }
+                });
+
+        return phases;
+    }
+
+    /**
+     * Returns the phases of a deployment reached by the service.
+     * The service doesn't tell when its revision has been created, so the time it's noticed is used instead.
+     */
+    public Map<OperationProgressDto.Phase, Instant> extractServicePhases(V1Service service) {
+        Map<OperationProgressDto.Phase, Instant> phases = new EnumMap<>(OperationProgressDto.Phase.class);
+        V1ServiceStatus status = service.getStatus();
+        if (status == null) {
+            return phases;
+        }
+
+        if (StringUtils.isNotBlank(status.getLatestCreatedRevisionName())) {
+            phases.put(OperationProgressDto.Phase.REVISION_CREATED, Instant.now());
+        }
+
+        if (status.getConditions() != null) {
+            for (V1Condition condition : status.getConditions()) {
+                if ("Ready".equals(condition.getType()) && "True".equals(condition.getStatus())) {
+                    OffsetDateTime readyAt = condition.getLastTransitionTime();
+                    phases.put(OperationProgressDto.Phase.READY, readyAt == null ? Instant.now() : readyAt.toInstant());
+                }
+            }
+        }
+
+        return phases;
+    }
+
     public Pair<String, String> extractFailedContainer(V1PodList podList) {
         for (V1Pod pod : podList.getItems()) {
             if ("Failed".equals(pod.getStatus().getPhase())) {
@@ -110,6 +206,30 @@ public class KubernetesUtils {
         return null;
     }
 
+    /**
+     * Returns the pod and container names of the containers that have started, init containers first.
+     */
+    public List<Pair<String, String>> extractStartedContainers(V1Pod pod) {
+        V1PodStatus status = pod.getStatus();
+        if (status == null) {
+            return List.of();
+        }
+
+        String podName = pod.getMetadata().getName();
+        return Stream.of(status.getInitContainerStatuses(), status.getContainerStatuses())
+                .filter(Objects::nonNull)
+                .flatMap(Collection::stream)
+                .filter(container -> container.getState() != null
+                        && (container.getState().getRunning() != null || container.getState().getTerminated() != null))
+                .map(container -> Pair.of(podName, container.getName()))
+                .toList();
+    }
+
+    private boolean hasSucceeded(V1ContainerStatus container) {
+        V1ContainerStateTerminated terminated = container.getState() == null ? null : container.getState().getTerminated();
+        return terminated != null && terminated.getExitCode() == 0;
+    }
+
     private Optional<String> findFailedContainerName(V1PodStatus podStatus) {
         return Stream.of(
                         podStatus.getInitContainerStatuses(),
@@ -6,6 +6,11 @@ import lombok.experimental.UtilityClass;
 public class NamingUtils {
     private static final String NAME_PREFIX = "app-ctrl";
 
+    /**
+     * Image label holding the fingerprint of the sources the image has been built from.
+     */
+    public static final String SOURCES_FINGERPRINT_LABEL = "ai.epam.dial.app-controller.sources-fingerprint";
+
     public static String dialAuthSecretName(String name) {
         return kubeName("dial-auth", name);
     }
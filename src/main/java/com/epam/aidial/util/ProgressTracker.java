@@ -0,0 +1,42 @@
+package com.epam.aidial.util;
+
+import com.epam.aidial.dto.OperationProgressDto;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Reports each phase of an operation once.
+ *
+ * <p>Resource states come from several watches, each of them listing all phases reached so far.
+ * Phases noticed together are reported in their natural order, since their timestamps come from different clocks.
+ */
+public class ProgressTracker {
+    private final Instant startedAt = Instant.now();
+    private final Set<OperationProgressDto.Phase> reported = EnumSet.noneOf(OperationProgressDto.Phase.class);
+    private final Consumer<OperationProgressDto> listener;
+
+    public ProgressTracker(Consumer<OperationProgressDto> listener) {
+        this.listener = listener;
+    }
+
+    public void report(OperationProgressDto.Phase phase, Instant timestamp) {
+        report(Map.of(phase, timestamp));
+    }
+
+    public synchronized void report(Map<OperationProgressDto.Phase, Instant> phases) {
+        phases.entrySet().stream()
+                .filter(phase -> !reported.contains(phase.getKey()))
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(phase -> {
+                    reported.add(phase.getKey());
+                    // Kubernetes timestamps are truncated to seconds, so they may precede the start
+                    long elapsedMs = Math.max(Duration.between(startedAt, phase.getValue()).toMillis(), 0);
+                    listener.accept(new OperationProgressDto(phase.getKey(), phase.getValue(), elapsedMs));
+                });
+    }
+}
@@ -0,0 +1,49 @@
+package com.epam.aidial.util;
+
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets through at most the given number of events per second, counted in fixed one-second windows.
+ * Events beyond the cap are meant to be dropped rather than delayed.
+ */
+public class RateCap {
+    private static final long WINDOW_MS = 1000;
+
+    private final int maxPerSecond;
+    private long windowStart = now();
+    private int count;
+
+    /**
+     * Creates a cap.
+     *
+     * @param maxPerSecond maximum number of events per second, a non-positive value disables the cap
+     */
+    public RateCap(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (maxPerSecond <= 0) {
+            return true;
+        }
+
+        long now = now();
+        if (now - windowStart >= WINDOW_MS) {
+            windowStart = now;
+            count = 0;
+        }
+
+        if (count < maxPerSecond) {
+            ++count;
+            return true;
+        }
+
+        return false;
+    }
+
+    private static long now() {
+        return Schedulers.parallel().now(TimeUnit.MILLISECONDS);
+    }
+}
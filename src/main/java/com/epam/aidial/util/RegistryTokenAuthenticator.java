@@ -0,0 +1,183 @@
+package com.epam.aidial.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Authenticator;
+import okhttp3.Credentials;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.Route;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Docker Registry token authentication.
+ *
+ * <p>When the registry answers with a {@code Bearer} challenge, a token for the challenged scope is requested
+ * from the token service and the request is repeated with it. Tokens are cached per scope until they expire,
+ * and the requests to the same repository get the cached token up front, avoiding the challenge round trip.
+ */
+@Slf4j
+public class RegistryTokenAuthenticator implements Authenticator, Interceptor {
+    private static final Pattern CHALLENGE_PARAMETER = Pattern.compile("(\\w+)=\"([^\"]*)\"");
+    private static final Pattern REPOSITORY_PATH = Pattern.compile("^/v2/(.+)/(manifests|blobs|tags)/.*$");
+    private static final String BEARER_PREFIX = "Bearer ";
+    // Default lifetime from the token authentication specification
+    private static final Duration DEFAULT_EXPIRATION = Duration.ofSeconds(60);
+    // Refresh tokens a bit earlier to not send a token expiring on the way
+    private static final Duration EXPIRATION_MARGIN = Duration.ofSeconds(10);
+
+    private final OkHttpClient tokenClient;
+    private final String credentials;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExpiringCache<String, String> tokens = new ExpiringCache<>(Duration.ofDays(1), 1000);
+    private final Map<String, String> requestTokenKeys = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an authenticator.
+     *
+     * @param tokenClient client for the token service requests, it must not use this authenticator
+     */
+    public RegistryTokenAuthenticator(OkHttpClient tokenClient, @Nullable String username, @Nullable String password) {
+        this.tokenClient = tokenClient;
+        this.credentials = StringUtils.isBlank(username) ? null : Credentials.basic(username, StringUtils.defaultString(password));
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (request.header("Authorization") == null) {
+            String tokenKey = requestTokenKeys.get(requestKey(request));
+            String token = tokenKey == null ? null : tokens.get(tokenKey);
+            if (token != null) {
+                request = request.newBuilder()
+                        .header("Authorization", BEARER_PREFIX + token)
+                        .build();
+            }
+        }
+
+        return chain.proceed(request);
+    }
+
+    @Nullable
+    @Override
+    public Request authenticate(@Nullable Route route, @NotNull Response response) throws IOException {
+        Map<String, String> challenge = bearerChallenge(response);
+        if (challenge == null) {
+            return null;
+        }
+
+        String tokenKey = tokenKey(challenge);
+        if (response.priorResponse() != null) {
+            // The token has been rejected, so don't try it again
+            tokens.remove(tokenKey);
+            return null;
+        }
+
+        String token = tokens.get(tokenKey);
+        if (token != null && (BEARER_PREFIX + token).equals(response.request().header("Authorization"))) {
+            // The cached token attached up front has been rejected, e.g. it has expired earlier than announced
+            tokens.remove(tokenKey);
+            token = null;
+        }
+
+        if (token == null) {
+            token = requestToken(challenge);
+            if (token == null) {
+                return null;
+            }
+        }
+
+        requestTokenKeys.put(requestKey(response.request()), tokenKey);
+        return response.request().newBuilder()
+                .header("Authorization", BEARER_PREFIX + token)
+                .build();
+    }
+
+    @Nullable
+    private String requestToken(Map<String, String> challenge) throws IOException {
+        HttpUrl realm = HttpUrl.parse(StringUtils.defaultString(challenge.get("realm")));
+        if (realm == null) {
+            log.warn("Invalid token realm in registry challenge: {}", challenge);
+            return null;
+        }
+
+        HttpUrl.Builder url = realm.newBuilder();
+        for (String parameter : new String[] {"service", "scope"}) {
+            if (challenge.get(parameter) != null) {
+                url.addQueryParameter(parameter, challenge.get(parameter));
+            }
+        }
+        Request.Builder request = new Request.Builder().url(url.build());
+        if (credentials != null) {
+            request.header("Authorization", credentials);
+        }
+
+        try (Response response = tokenClient.newCall(request.build()).execute()) {
+            if (!response.isSuccessful()) {
+                log.warn("Failed to get registry token for scope {}: {}", challenge.get("scope"), response.code());
+                return null;
+            }
+
+            JsonNode body = objectMapper.readTree(response.body().string());
+            String token = body.hasNonNull("token") ? body.get("token").asText() : body.path("access_token").asText(null);
+            if (StringUtils.isBlank(token)) {
+                log.warn("Missing token in registry token response for scope {}", challenge.get("scope"));
+                return null;
+            }
+
+            Duration expiresIn = body.hasNonNull("expires_in")
+                    ? Duration.ofSeconds(body.get("expires_in").asLong())
+                    : DEFAULT_EXPIRATION;
+            Duration ttl = expiresIn.minus(EXPIRATION_MARGIN);
+            if (ttl.isPositive()) {
+                tokens.put(tokenKey(challenge), token, ttl);
+            }
+            log.info("Received registry token for scope {} expiring in {} s", challenge.get("scope"), expiresIn.toSeconds());
+            return token;
+        }
+    }
+
+    @Nullable
+    private static Map<String, String> bearerChallenge(Response response) {
+        for (String header : response.headers("WWW-Authenticate")) {
+            if (StringUtils.startsWithIgnoreCase(header, BEARER_PREFIX)) {
+                Map<String, String> parameters = new HashMap<>();
+                Matcher matcher = CHALLENGE_PARAMETER.matcher(header);
+                while (matcher.find()) {
+                    parameters.put(matcher.group(1), matcher.group(2));
+                }
+                return parameters;
+            }
+        }
+
+        return null;
+    }
+
+    private static String tokenKey(Map<String, String> challenge) {
+        return challenge.get("realm") + " " + challenge.get("service") + " " + StringUtils.defaultString(challenge.get("scope"));
+    }
+
+    /**
+     * Requests of the same method to the same repository are challenged with the same scope.
+     */
+    private static String requestKey(Request request) {
+        Matcher matcher = REPOSITORY_PATH.matcher(request.url().encodedPath());
+        String repository = matcher.matches() ? matcher.group(1) : request.url().encodedPath();
+        return request.method() + " " + request.url().host() + " " + repository;
+    }
+}
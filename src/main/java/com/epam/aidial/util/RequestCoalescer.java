@@ -0,0 +1,41 @@
+package com.epam.aidial.util;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Shares a single upstream request and its result between identical requests made within a time window.
+ * Failed requests are not shared after completion.
+ */
+public class RequestCoalescer<K, V> {
+    private final Map<K, Mono<V>> requests = new ConcurrentHashMap<>();
+    private final Duration window;
+
+    public RequestCoalescer(Duration window) {
+        this.window = window;
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> request) {
+        return Mono.defer(() -> requests.computeIfAbsent(key, k -> share(k, request.get())));
+    }
+
+    private Mono<V> share(K key, Mono<V> request) {
+        AtomicReference<Mono<V>> shared = new AtomicReference<>();
+        shared.set(request
+                .doFinally(signal -> {
+                    if (signal == SignalType.ON_ERROR || window.isZero()) {
+                        requests.remove(key, shared.get());
+                    } else {
+                        Mono.delay(window).subscribe(ignore -> requests.remove(key, shared.get()));
+                    }
+                })
+                .cache());
+        return shared.get();
+    }
+}
@@ -0,0 +1,136 @@
+package com.epam.aidial.util;
+
+import io.kubernetes.client.openapi.ApiException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Retries failed calls to upstream services with exponential backoff and jitter.
+ *
+ * <p>When the service tells how long to wait with {@code Retry-After}, that delay is used instead of the backoff.
+ * If it exceeds the maximum backoff, the call fails rather than retrying earlier than asked.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class RetryPolicy {
+    private static final String RETRY_AFTER = "Retry-After";
+
+    private final int maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+
+    /**
+     * Returns a retry spec for the errors matching the predicate.
+     * Use {@link #isTransient} for idempotent calls and {@link #isThrottled} for the rest.
+     */
+    public Retry retry(Predicate<Throwable> retryable) {
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            Throwable error = signal.failure();
+            long attempt = signal.totalRetries();
+            if (attempt >= maxRetries || !retryable.test(error)) {
+                return Mono.error(error);
+            }
+
+            Duration retryAfter = retryAfter(error);
+            Duration delay = retryAfter == null ? backoff(attempt) : retryAfter;
+            if (delay.compareTo(maxBackoff) > 0) {
+                return Mono.error(error);
+            }
+
+            log.warn("Retrying in {} ms after attempt {} failed: {}", delay.toMillis(), attempt + 1, error.getMessage());
+            return Mono.delay(delay);
+        }));
+    }
+
+    /**
+     * Returns true for the errors a repeated call may not get: throttling, server errors and I/O failures.
+     */
+    public static boolean isTransient(Throwable error) {
+        int status = status(error);
+        return status == 0
+                ? isIoError(error)
+                : status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * Returns true if the call has been rejected by throttling and therefore has not been processed.
+     */
+    public static boolean isThrottled(Throwable error) {
+        return status(error) == 429;
+    }
+
+    private Duration backoff(long attempt) {
+        long max = Math.min(maxBackoff.toMillis(), minBackoff.toMillis() << Math.min(attempt, 30));
+        // Equal jitter keeps at least half of the backoff while spreading out the retries of concurrent calls
+        return Duration.ofMillis(max / 2 + ThreadLocalRandom.current().nextLong(max / 2 + 1));
+    }
+
+    private static int status(Throwable error) {
+        if (error instanceof ApiException apiException) {
+            return apiException.getCode();
+        }
+
+        if (error instanceof ResponseStatusException statusException) {
+            return statusException.getStatusCode().value();
+        }
+
+        return 0;
+    }
+
+    private static boolean isIoError(Throwable error) {
+        return error instanceof IOException || error.getCause() instanceof IOException;
+    }
+
+    @Nullable
+    private static Duration retryAfter(Throwable error) {
+        String value = null;
+        if (error instanceof ApiException apiException && apiException.getResponseHeaders() != null) {
+            value = apiException.getResponseHeaders().entrySet().stream()
+                    .filter(header -> RETRY_AFTER.equalsIgnoreCase(header.getKey()))
+                    .map(Map.Entry::getValue)
+                    .flatMap(List::stream)
+                    .findFirst()
+                    .orElse(null);
+        } else if (error instanceof ResponseStatusException statusException) {
+            value = statusException.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        }
+
+        return parseRetryAfter(value);
+    }
+
+    @Nullable
+    static Duration parseRetryAfter(@Nullable String value) {
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                Instant date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                Duration delay = Duration.between(Instant.now(), date);
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException ignore) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.epam.aidial.util;
+
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Runs one operation per key at a time, attaching concurrent calls with equal parameters to the operation in flight.
+ *
+ * <p>Callers attaching late receive the latest event and everything after it.
+ * The operation is cancelled only when all its callers have cancelled.
+ */
+public class SingleFlight<K, T> {
+    private final Map<K, Flight<T>> flights = new ConcurrentHashMap<>();
+
+    public Flux<T> execute(K key, Supplier<Flux<T>> operation) {
+        return execute(key, key, operation, Flux::empty);
+    }
+
+    /**
+     * Runs the operation unless one is in flight for the key.
+     *
+     * @param parameters parameters of the operation, a call with other parameters gets the conflict instead of attaching
+     * @param conflict result of a call made while an operation with other parameters is in flight
+     */
+    public Flux<T> execute(K key, Object parameters, Supplier<Flux<T>> operation, Supplier<Flux<T>> conflict) {
+        return Flux.defer(() -> {
+            Flight<T> flight = flights.computeIfAbsent(key, k -> share(k, parameters, operation.get()));
+            return flight.parameters().equals(parameters) ? flight.events() : conflict.get();
+        });
+    }
+
+    /**
+     * Returns the number of operations in flight.
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    private Flight<T> share(K key, Object parameters, Flux<T> operation) {
+        AtomicReference<Flight<T>> shared = new AtomicReference<>();
+        // Forget the operation before its callers are signalled, so that a new call starts a new operation
+        shared.set(new Flight<>(parameters, operation
+                .doOnTerminate(() -> flights.remove(key, shared.get()))
+                .doOnCancel(() -> flights.remove(key, shared.get()))
+                .replay(1)
+                .refCount()));
+        return shared.get();
+    }
+
+    private record Flight<T>(Object parameters, Flux<T> events) {
+    }
+}
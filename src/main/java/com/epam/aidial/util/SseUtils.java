@@ -3,18 +3,55 @@ package com.epam.aidial.util;
 import com.epam.aidial.dto.ErrorResponseDto;
 import lombok.experimental.UtilityClass;
 import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @UtilityClass
 public class SseUtils {
-    private static final String RESULT = "result";
+    public static final String RESULT = "result";
     private static final String ERROR = "error";
+    private static final String LOG = "log";
+    private static final String PROGRESS = "progress";
+    private static final String QUEUE = "queue";
 
     public Mono<ServerSentEvent<Object>> mapToSseEvent(Mono<?> data) {
         return data.map(SseUtils::result)
                 .onErrorResume(e -> Mono.just(SseUtils.error(new ErrorResponseDto(e.getMessage()))));
     }
 
+    /**
+     * Runs the operation, sending the progress it reports as "progress" events followed by its result.
+     */
+    public <P> Flux<ServerSentEvent<Object>> mapToSseEventsWithProgress(Function<Consumer<P>, Mono<?>> operation) {
+        return Flux.defer(() -> {
+            Sinks.Many<ServerSentEvent<Object>> progress = Sinks.many().unicast().onBackpressureBuffer();
+            Mono<ServerSentEvent<Object>> result = mapToSseEvent(operation.apply(data -> progress.tryEmitNext(progress(data))))
+                    .doFinally(signal -> progress.tryEmitComplete());
+            return Flux.merge(progress.asFlux(), result);
+        });
+    }
+
+    public Flux<ServerSentEvent<Object>> mapToSseEvents(Flux<ServerSentEvent<Object>> events) {
+        return events.onErrorResume(e -> Mono.just(SseUtils.error(new ErrorResponseDto(e.getMessage()))));
+    }
+
+    /**
+     * Copies the event with the id, so that a client reconnecting with Last-Event-ID can resume after it.
+     */
+    public ServerSentEvent<Object> withId(ServerSentEvent<Object> event, long id) {
+        return ServerSentEvent.builder()
+                .id(String.valueOf(id))
+                .event(event.event())
+                .data(event.data())
+                .comment(event.comment())
+                .retry(event.retry())
+                .build();
+    }
+
     public ServerSentEvent<Object> heartbeat() {
         return ServerSentEvent.builder()
                 .comment("heartbeat")
@@ -34,4 +71,25 @@ public class SseUtils {
                 .data(error)
                 .build();
     }
+
+    public ServerSentEvent<Object> log(Object data) {
+        return ServerSentEvent.builder()
+                .event(SseUtils.LOG)
+                .data(data)
+                .build();
+    }
+
+    public ServerSentEvent<Object> progress(Object data) {
+        return ServerSentEvent.builder()
+                .event(SseUtils.PROGRESS)
+                .data(data)
+                .build();
+    }
+
+    public ServerSentEvent<Object> queue(Object data) {
+        return ServerSentEvent.builder()
+                .event(SseUtils.QUEUE)
+                .data(data)
+                .build();
+    }
 }
@@ -0,0 +1,62 @@
+package com.epam.aidial.util.mapping;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Named item list of a {@link MappingPlan} with the positions of the template items resolved at compile time.
+ * An item is looked up by name only if it isn't at its template position.
+ */
+public class ListPlan<T, Y> {
+    private final Function<T, List<Y>> accessor;
+    private final List<Y> template;
+    private final NamedItemMapper<Y> itemMapper;
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    ListPlan(Function<T, List<Y>> accessor, List<Y> template, NamedItemMapper<Y> itemMapper) {
+        this.accessor = accessor;
+        this.template = template;
+        this.itemMapper = itemMapper;
+        for (int i = 0; i < template.size(); ++i) {
+            slots.putIfAbsent(itemMapper.getter().apply(template.get(i)), i);
+        }
+    }
+
+    /**
+     * Compiles the path to the named item, adding the item to the template if it's missing.
+     */
+    public MappingPlan<T, Y> get(String name) {
+        Y item = find(template, -1, name);
+        int slot = template.indexOf(item);
+        return new MappingPlan<>(object -> find(accessor.apply(object), slot, name), item);
+    }
+
+    /**
+     * Returns the named item of the object, adding it if it's missing like {@link ListMapper#get} does.
+     */
+    public MappingChain<Y> get(T object, String name) {
+        return new MappingChain<>(find(accessor.apply(object), slots.getOrDefault(name, -1), name));
+    }
+
+    private Y find(List<Y> list, int slot, String name) {
+        if (slot >= 0 && slot < list.size()) {
+            Y item = list.get(slot);
+            if (name.equals(itemMapper.getter().apply(item))) {
+                return item;
+            }
+        }
+
+        for (Y item : list) {
+            if (name.equals(itemMapper.getter().apply(item))) {
+                return item;
+            }
+        }
+
+        Y item = itemMapper.factory().get();
+        itemMapper.setter().accept(item, name);
+        list.add(item);
+        return item;
+    }
+}
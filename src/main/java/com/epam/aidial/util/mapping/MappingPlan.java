@@ -0,0 +1,36 @@
+package com.epam.aidial.util.mapping;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Mapping path compiled against a template, so that applying it to a copy of the template
+ * only follows the resolved fields and list positions.
+ *
+ * <p>Compiling may add the missing fields and items to the template, so it must be given a copy.
+ */
+public class MappingPlan<T, Y> {
+    private final Function<T, Y> accessor;
+    private final Y template;
+
+    MappingPlan(Function<T, Y> accessor, Y template) {
+        this.accessor = accessor;
+        this.template = template;
+    }
+
+    public static <T> MappingPlan<T, T> compile(T template) {
+        return new MappingPlan<>(Function.identity(), template);
+    }
+
+    public <Z> MappingPlan<T, Z> get(FieldMapper<Y, Z> fieldMapper) {
+        return new MappingPlan<>(accessor.andThen(fieldMapper::getOrSet), fieldMapper.getOrSet(template));
+    }
+
+    public <Z> ListPlan<T, Z> getList(FieldMapper<Y, List<Z>> fieldMapper, NamedItemMapper<Z> itemMapper) {
+        return new ListPlan<>(accessor.andThen(fieldMapper::getOrSet), fieldMapper.getOrSet(template), itemMapper);
+    }
+
+    public MappingChain<Y> apply(T object) {
+        return new MappingChain<>(accessor.apply(object));
+    }
+}
@@ -1,10 +1,14 @@
 package com.epam.aidial.controller;
 
+import com.epam.aidial.dto.ApplicationLogEventDto;
+import com.epam.aidial.dto.CancelOperationResponseDto;
 import com.epam.aidial.dto.CreateDeploymentRequestDto;
 import com.epam.aidial.dto.CreateDeploymentResponseDto;
 import com.epam.aidial.dto.DeleteDeploymentResponseDto;
 import com.epam.aidial.service.DeployService;
 import com.epam.aidial.service.HeartbeatService;
+import com.epam.aidial.service.OperationScheduler;
+import com.epam.aidial.service.OperationService;
 import com.epam.aidial.util.SseUtils;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -21,8 +25,11 @@ import reactor.test.StepVerifier;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -40,6 +47,12 @@ class DeploymentControllerTest {
     @MockitoBean
     private HeartbeatService heartbeatService;
 
+    @MockitoBean
+    private OperationScheduler operationScheduler;
+
+    @MockitoBean
+    private OperationService operationService;
+
     @Captor
     private ArgumentCaptor<Object> deployCaptor;
 
@@ -49,19 +62,24 @@ class DeploymentControllerTest {
     @Captor
     private ArgumentCaptor<Mono<ServerSentEvent<Object>>> setupHeartbeatsCaptor;
 
+    @Captor
+    private ArgumentCaptor<Flux<ServerSentEvent<Object>>> setupStreamHeartbeatsCaptor;
+
     @Test
     @SuppressWarnings("unchecked")
     void testDeploymentCreate() {
         // Arrange
         when(deployService.deploy(
                 (String) deployCaptor.capture(),
-                (Map<String, String>) deployCaptor.capture()))
+                (Map<String, String>) deployCaptor.capture(),
+                any()))
                 .thenReturn(Mono.just(TEST_URL));
+        when(operationScheduler.schedule(eq(OperationScheduler.OperationType.DEPLOY), eq(OperationScheduler.DEFAULT_TENANT), eq(TEST_NAME), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Flux<ServerSentEvent<Object>>>>getArgument(4).get());
+        when(heartbeatService.setupStreamHeartbeats(
+                setupStreamHeartbeatsCaptor.capture()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
         CreateDeploymentResponseDto response = new CreateDeploymentResponseDto(TEST_URL);
-        ServerSentEvent<Object> result = SseUtils.result(response);
-        when(heartbeatService.setupHeartbeats(
-                setupHeartbeatsCaptor.capture()))
-                .thenReturn(Mono.just(result).flux());
         Map<String, String> env = Map.of("test-env-name", "test-env-value");
 
         // Act
@@ -79,11 +97,31 @@ class DeploymentControllerTest {
                 .expectNext(response)
                 .verifyComplete();
 
-        StepVerifier.create(setupHeartbeatsCaptor.getValue())
-                .expectNext(result);
-
         assertThat(deployCaptor.getAllValues())
                 .isEqualTo(List.of(TEST_NAME, env));
+        verify(operationScheduler).schedule(
+                eq(OperationScheduler.OperationType.DEPLOY), eq(OperationScheduler.DEFAULT_TENANT), eq(TEST_NAME), eq(new DeployService.DeployParameters(TEST_NAME, env)), any());
+    }
+
+    @Test
+    void testCancel() {
+        // Arrange
+        when(operationScheduler.cancel(OperationScheduler.OperationType.DEPLOY, TEST_NAME))
+                .thenReturn(true);
+
+        // Act
+        Flux<CancelOperationResponseDto> actual = webTestClient.post()
+                .uri("/v1/deployment/" + TEST_NAME + "/cancel")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(CancelOperationResponseDto.class)
+                .getResponseBody();
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectNext(new CancelOperationResponseDto(true))
+                .verifyComplete();
     }
 
     @Test
@@ -117,4 +155,29 @@ class DeploymentControllerTest {
 
         verify(deployService).undeploy(TEST_NAME);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFollowLogs() {
+        // Arrange
+        ApplicationLogEventDto event = new ApplicationLogEventDto("test-pod", "test-line");
+        when(deployService.followLogs(TEST_NAME))
+                .thenReturn(Flux.just(event));
+        when(heartbeatService.setupStreamHeartbeats(
+                setupStreamHeartbeatsCaptor.capture()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Flux<ApplicationLogEventDto> actual = webTestClient.get()
+                .uri("/v1/deployment/" + TEST_NAME + "/logs/follow")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(ApplicationLogEventDto.class)
+                .getResponseBody();
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectNext(event)
+                .verifyComplete();
+    }
+}
@@ -1,16 +1,24 @@
 package com.epam.aidial.controller;
 
+import com.epam.aidial.dto.BuildLogEventDto;
+import com.epam.aidial.dto.CancelOperationResponseDto;
 import com.epam.aidial.dto.CreateImageRequestDto;
 import com.epam.aidial.dto.CreateImageResponseDto;
 import com.epam.aidial.dto.DeleteImageResponseDto;
+import com.epam.aidial.dto.DeleteUnusedImagesProgressDto;
+import com.epam.aidial.dto.OperationDto;
 import com.epam.aidial.service.BuildService;
 import com.epam.aidial.service.HeartbeatService;
+import com.epam.aidial.service.ImageCleanupService;
+import com.epam.aidial.service.OperationScheduler;
+import com.epam.aidial.service.OperationService;
 import com.epam.aidial.util.SseUtils;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -19,7 +27,12 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Instant;
+import java.util.function.Supplier;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,6 +44,7 @@ class ImageControllerTest {
     private static final String TEST_IMAGE = "test-image";
     private static final String TEST_JWT = "test-api-jwt";
     private static final String TEST_API_KEY = "test-api-key";
+    private static final String TEST_TENANT = "test-tenant";
 
     @Autowired
     private WebTestClient webTestClient;
@@ -38,9 +52,18 @@ class ImageControllerTest {
     @MockitoBean
     private BuildService buildService;
 
+    @MockitoBean
+    private ImageCleanupService imageCleanupService;
+
     @MockitoBean
     private HeartbeatService heartbeatService;
 
+    @MockitoBean
+    private OperationScheduler operationScheduler;
+
+    @MockitoBean
+    private OperationService operationService;
+
     @Captor
     private ArgumentCaptor<BuildService.BuildParameters> buildCaptor;
 
@@ -50,22 +73,27 @@ class ImageControllerTest {
     @Captor
     private ArgumentCaptor<Mono<ServerSentEvent<Object>>> setupHeartbeatsCaptor;
 
+    @Captor
+    private ArgumentCaptor<Flux<ServerSentEvent<Object>>> setupStreamHeartbeatsCaptor;
+
     @Test
     void testImageCreate() {
         // Arrange
-        when(buildService.build(buildCaptor.capture()))
+        when(buildService.build(buildCaptor.capture(), any()))
                 .thenReturn(Mono.just(TEST_IMAGE));
+        when(operationScheduler.schedule(eq(OperationScheduler.OperationType.BUILD), eq(TEST_TENANT), eq(TEST_NAME), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Flux<ServerSentEvent<Object>>>>getArgument(4).get());
+        when(heartbeatService.setupStreamHeartbeats(
+                setupStreamHeartbeatsCaptor.capture()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
         CreateImageResponseDto response = new CreateImageResponseDto(TEST_IMAGE);
-        ServerSentEvent<Object> result = SseUtils.result(response);
-        when(heartbeatService.setupHeartbeats(
-                setupHeartbeatsCaptor.capture()))
-                .thenReturn(Mono.just(result).flux());
 
         // Act
         Flux<CreateImageResponseDto> actual = webTestClient.post()
                 .uri("/v1/image/" + TEST_NAME)
                 .header("api-key", TEST_API_KEY)
                 .header("Authorization", "Bearer " + TEST_JWT)
+                .header("X-Tenant-Id", TEST_TENANT)
                 .body(BodyInserters.fromValue(new CreateImageRequestDto(TEST_SOURCES, TEST_RUNTIME)))
                 .exchange()
                 .expectStatus()
@@ -78,11 +106,86 @@ class ImageControllerTest {
                 .expectNext(response)
                 .verifyComplete();
 
-        StepVerifier.create(setupHeartbeatsCaptor.getValue())
-                .expectNext(result);
-
+        BuildService.BuildParameters expected = new BuildService.BuildParameters(TEST_NAME, TEST_SOURCES, TEST_API_KEY, TEST_JWT, TEST_RUNTIME);
         assertThat(buildCaptor.getValue())
-                .isEqualTo(new BuildService.BuildParameters(TEST_NAME, TEST_SOURCES, TEST_API_KEY, TEST_JWT, TEST_RUNTIME));
+                .isEqualTo(expected);
+        verify(operationScheduler).schedule(eq(OperationScheduler.OperationType.BUILD), eq(TEST_TENANT), eq(TEST_NAME), eq(expected.withoutCredentials()), any());
+    }
+
+    @Test
+    void testImageCreateFollowsLogs() {
+        // Arrange
+        when(buildService.build(any(), any()))
+                .thenReturn(Mono.just(TEST_IMAGE));
+        when(buildService.followLogs(TEST_NAME))
+                .thenReturn(Flux.just(new BuildLogEventDto("builder", "building")));
+        when(operationScheduler.schedule(eq(OperationScheduler.OperationType.BUILD), eq(OperationScheduler.DEFAULT_TENANT), eq(TEST_NAME), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Flux<ServerSentEvent<Object>>>>getArgument(4).get());
+        when(heartbeatService.setupStreamHeartbeats(
+                setupStreamHeartbeatsCaptor.capture()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Flux<String> actual = webTestClient.post()
+                .uri("/v1/image/" + TEST_NAME + "?followLogs=true")
+                .body(BodyInserters.fromValue(new CreateImageRequestDto(TEST_SOURCES, TEST_RUNTIME)))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>() {
+                })
+                .getResponseBody()
+                .map(ServerSentEvent::event);
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectNext("log", "result")
+                .verifyComplete();
+    }
+
+    @Test
+    void testImageCreateAsync() {
+        // Arrange
+        Flux<ServerSentEvent<Object>> events = Flux.never();
+        when(operationScheduler.schedule(eq(OperationScheduler.OperationType.BUILD), eq(OperationScheduler.DEFAULT_TENANT), eq(TEST_NAME), any(), any()))
+                .thenReturn(events);
+        OperationDto operation = new OperationDto(
+                "test-id", OperationScheduler.OperationType.BUILD, TEST_NAME, OperationDto.Status.RUNNING, null, null, Instant.EPOCH, null);
+        when(operationService.start(OperationScheduler.OperationType.BUILD, TEST_NAME, events))
+                .thenReturn(operation);
+
+        // Act & Assert
+        webTestClient.post()
+                .uri("/v1/image/" + TEST_NAME + "?async=true")
+                .body(BodyInserters.fromValue(new CreateImageRequestDto(TEST_SOURCES, TEST_RUNTIME)))
+                .exchange()
+                .expectStatus()
+                .isAccepted()
+                .expectHeader()
+                .location("/v1/operations/test-id")
+                .expectBody(OperationDto.class)
+                .isEqualTo(operation);
+    }
+
+    @Test
+    void testCancel() {
+        // Arrange
+        when(operationScheduler.cancel(OperationScheduler.OperationType.BUILD, TEST_NAME))
+                .thenReturn(true);
+
+        // Act
+        Flux<CancelOperationResponseDto> actual = webTestClient.post()
+                .uri("/v1/image/" + TEST_NAME + "/cancel")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(CancelOperationResponseDto.class)
+                .getResponseBody();
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectNext(new CancelOperationResponseDto(true))
+                .verifyComplete();
     }
 
     @Test
@@ -116,4 +219,33 @@ class ImageControllerTest {
 
         verify(buildService).clean(TEST_NAME);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testUnusedImagesDelete() {
+        // Arrange
+        when(imageCleanupService.deleteUnusedImages(true))
+                .thenReturn(Flux.just(
+                        new DeleteUnusedImagesProgressDto(TEST_NAME, false, null, 1, 2),
+                        new DeleteUnusedImagesProgressDto(TEST_IMAGE, false, "test-error", 2, 2)));
+        when(heartbeatService.setupStreamHeartbeats(
+                setupStreamHeartbeatsCaptor.capture()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Flux<ServerSentEvent<String>> actual = webTestClient.delete()
+                .uri("/v1/image?dryRun=true")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>() {
+                })
+                .getResponseBody();
+
+        // Assert
+        StepVerifier.create(actual.map(event -> event.event() + ":" + event.data()))
+                .expectNext("progress:{\"name\":\"test-name\",\"deleted\":false,\"error\":null,\"processed\":1,\"total\":2}")
+                .expectNext("progress:{\"name\":\"test-image\",\"deleted\":false,\"error\":\"test-error\",\"processed\":2,\"total\":2}")
+                .expectNext("result:{\"unused\":2,\"deleted\":0,\"failed\":1}")
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,96 @@
+package com.epam.aidial.controller;
+
+import com.epam.aidial.dto.CreateImageResponseDto;
+import com.epam.aidial.dto.OperationDto;
+import com.epam.aidial.service.HeartbeatService;
+import com.epam.aidial.service.OperationScheduler;
+import com.epam.aidial.service.OperationService;
+import com.epam.aidial.util.SseUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(OperationController.class)
+class OperationControllerTest {
+    private static final String TEST_ID = "test-id";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private OperationService operationService;
+
+    @MockitoBean
+    private HeartbeatService heartbeatService;
+
+    @Test
+    void testGet() {
+        // Arrange
+        OperationDto operation = new OperationDto(TEST_ID, OperationScheduler.OperationType.BUILD, "test-name",
+                OperationDto.Status.SUCCEEDED, new CreateImageResponseDto("test-image"), null, Instant.EPOCH, Instant.EPOCH);
+        when(operationService.get(TEST_ID))
+                .thenReturn(operation);
+
+        // Act & Assert
+        webTestClient.get()
+                .uri("/v1/operations/" + TEST_ID)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("SUCCEEDED")
+                .jsonPath("$.result.image").isEqualTo("test-image");
+    }
+
+    @Test
+    void testGetUnknown() {
+        // Arrange
+        when(operationService.get(TEST_ID))
+                .thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+        // Act & Assert
+        webTestClient.get()
+                .uri("/v1/operations/" + TEST_ID)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    @Test
+    void testEventsResume() {
+        // Arrange
+        when(operationService.events(TEST_ID, "1"))
+                .thenReturn(Flux.just(SseUtils.withId(SseUtils.result(new CreateImageResponseDto("test-image")), 2)));
+        when(heartbeatService.setupStreamHeartbeats(any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Flux<ServerSentEvent<String>> actual = webTestClient.get()
+                .uri("/v1/operations/" + TEST_ID + "/events")
+                .header("Last-Event-ID", "1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>() {
+                })
+                .getResponseBody();
+
+        // Assert
+        StepVerifier.create(actual.map(event -> event.id() + ":" + event.event() + ":" + event.data()))
+                .expectNext("2:result:{\"image\":\"test-image\"}")
+                .verifyComplete();
+    }
+}
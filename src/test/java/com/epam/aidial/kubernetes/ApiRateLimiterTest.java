@@ -0,0 +1,95 @@
+package com.epam.aidial.kubernetes;
+
+import com.epam.aidial.kubernetes.ApiRateLimiter.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiRateLimiterTest {
+    private VirtualTimeScheduler scheduler;
+    private ApiRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = VirtualTimeScheduler.getOrSet();
+        limiter = new ApiRateLimiter("test", 1, 2, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    void testBurstIsServedImmediately() {
+        // Arrange
+        List<String> completed = new ArrayList<>();
+
+        // Act
+        limiter.acquire(Priority.INTERACTIVE).subscribe(null, null, () -> completed.add("first"));
+        limiter.acquire(Priority.INTERACTIVE).subscribe(null, null, () -> completed.add("second"));
+        limiter.acquire(Priority.INTERACTIVE).subscribe(null, null, () -> completed.add("third"));
+
+        // Assert
+        assertThat(completed).containsExactly("first", "second");
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        assertThat(completed).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    void testInteractiveCallsGoFirst() {
+        // Arrange
+        List<String> completed = new ArrayList<>();
+        limiter.acquire(Priority.BACKGROUND).subscribe();
+        limiter.acquire(Priority.BACKGROUND).subscribe();
+
+        // Act
+        limiter.acquire(Priority.BACKGROUND).subscribe(null, null, () -> completed.add("background"));
+        limiter.acquire(Priority.INTERACTIVE).subscribe(null, null, () -> completed.add("interactive"));
+
+        // Assert
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        assertThat(completed).containsExactly("interactive");
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        assertThat(completed).containsExactly("interactive", "background");
+    }
+
+    @Test
+    void testCancelledCallReleasesItsTurn() {
+        // Arrange
+        List<String> completed = new ArrayList<>();
+        limiter.acquire(Priority.INTERACTIVE).subscribe();
+        limiter.acquire(Priority.INTERACTIVE).subscribe();
+
+        // Act
+        limiter.acquire(Priority.INTERACTIVE).subscribe(null, null, () -> completed.add("cancelled")).dispose();
+        limiter.acquire(Priority.INTERACTIVE).subscribe(null, null, () -> completed.add("waiting"));
+
+        // Assert
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        assertThat(completed).containsExactly("waiting");
+    }
+
+    @Test
+    void testDisabledLimiter() {
+        // Arrange
+        ApiRateLimiter disabled = new ApiRateLimiter("disabled", 0, 1, new SimpleMeterRegistry());
+        List<String> completed = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            disabled.acquire(Priority.BACKGROUND).subscribe(null, null, () -> completed.add("call"));
+        }
+
+        // Assert
+        assertThat(completed).hasSize(10);
+    }
+}
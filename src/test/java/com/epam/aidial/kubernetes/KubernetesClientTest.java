@@ -0,0 +1,105 @@
+package com.epam.aidial.kubernetes;
+
+import com.epam.aidial.kubernetes.knative.V1Service;
+import com.epam.aidial.util.CircuitBreaker;
+import com.epam.aidial.util.RetryPolicy;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KubernetesClientTest {
+    private static final String TEST_NAMESPACE = "test-namespace";
+    private static final String TEST_NAME = "test-name";
+    private static final String TEST_SERVICE_VERSION = "serving.knative.dev/v1";
+    private static final String SERVICES_PATH = "/apis/serving.knative.dev/v1/namespaces/test-namespace/services";
+
+    private final CountDownLatch createResponse = new CountDownLatch(1);
+
+    private MockWebServer server;
+    private KubernetesClient kubernetesClient;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @NotNull
+            @Override
+            public MockResponse dispatch(@NotNull RecordedRequest request) throws InterruptedException {
+                if ("POST".equals(request.getMethod())) {
+                    createResponse.await(5, TimeUnit.SECONDS);
+                    return new MockResponse().setResponseCode(201).setBody("{}");
+                }
+
+                return new MockResponse().setResponseCode(404).setBody("{}");
+            }
+        });
+        server.start();
+
+        ResourceWatcher<V1Service> watcher = mock(ResourceWatcher.class);
+        when(watcher.watch(TEST_NAME)).thenReturn(Flux.never());
+        ResourceWatchers resourceWatchers = mock(ResourceWatchers.class);
+        when(resourceWatchers.knativeServices(any(), any())).thenReturn(watcher);
+        ApiClient apiClient = new ApiClient().setBasePath(server.url("").toString().replaceAll("/$", ""));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        kubernetesClient = new KubernetesClient(
+                apiClient,
+                resourceWatchers,
+                new ApiRateLimiter("test", 0, 1, meterRegistry),
+                new CircuitBreaker("test", 10, Duration.ofSeconds(30), RetryPolicy::isTransient, meterRegistry),
+                new RetryPolicy(0, Duration.ofMillis(1), Duration.ofMillis(1)),
+                Schedulers.immediate(),
+                false);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void testCancelledServiceSetupDeletesServiceCreatedAfterCancel() throws InterruptedException {
+        // Arrange
+        V1Service service = new V1Service();
+        service.setApiVersion(TEST_SERVICE_VERSION);
+        service.setKind("Service");
+        service.setMetadata(new V1ObjectMeta().name(TEST_NAME));
+        Disposable setup = kubernetesClient.createKnativeService(TEST_NAMESPACE, service, 60, state -> {
+        }).subscribe();
+        RecordedRequest create = server.takeRequest(5, TimeUnit.SECONDS);
+
+        // Act
+        setup.dispose();
+        createResponse.countDown();
+
+        // Assert
+        assertThat(create).isNotNull();
+        assertThat(create.getMethod()).isEqualTo("POST");
+        assertThat(create.getPath()).isEqualTo(SERVICES_PATH);
+        RecordedRequest delete = server.takeRequest(5, TimeUnit.SECONDS);
+        assertThat(delete).isNotNull();
+        assertThat(delete.getMethod()).isEqualTo("DELETE");
+        assertThat(delete.getPath()).startsWith(SERVICES_PATH + "/" + TEST_NAME);
+    }
+}
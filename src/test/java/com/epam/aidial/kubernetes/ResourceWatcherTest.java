@@ -0,0 +1,124 @@
+package com.epam.aidial.kubernetes;
+
+import io.kubernetes.client.informer.ListerWatcher;
+import io.kubernetes.client.informer.SharedIndexInformer;
+import io.kubernetes.client.informer.impl.DefaultSharedIndexInformer;
+import io.kubernetes.client.openapi.models.V1Job;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ResourceWatcherTest {
+    private static final String TEST_NAME = "test-name";
+    private static final String OTHER_NAME = "other-name";
+
+    @SuppressWarnings("unchecked")
+    private final ResourceWatcher<V1Job> watcher = new ResourceWatcher<>("Job", mock(SharedIndexInformer.class));
+
+    @Test
+    void testWatchReceivesOwnEventsOnly() {
+        // Arrange
+        V1Job job = job(TEST_NAME);
+        V1Job other = job(OTHER_NAME);
+
+        // Act
+        Flux<V1Job> actual = watcher.watch(TEST_NAME);
+
+        // Assert
+        StepVerifier.create(actual.take(2))
+                .then(() -> {
+                    watcher.onAdd(other);
+                    watcher.onAdd(job);
+                    watcher.onUpdate(other, other);
+                    watcher.onUpdate(job, job);
+                })
+                .expectNext(job, job)
+                .verifyComplete();
+    }
+
+    @Test
+    void testWatchFailsOnDelete() {
+        // Arrange
+        V1Job job = job(TEST_NAME);
+
+        // Act
+        Flux<V1Job> actual = watcher.watch(TEST_NAME);
+
+        // Assert
+        StepVerifier.create(actual)
+                .then(() -> watcher.onDelete(job, false))
+                .expectErrorMessage("Job test-name has been deleted")
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testCancelledWatchReceivesNothing() {
+        // Arrange
+        V1Job job = job(TEST_NAME);
+
+        // Act
+        Flux<V1Job> actual = watcher.watch(TEST_NAME);
+
+        // Assert
+        StepVerifier.create(actual)
+                .thenCancel()
+                .verify();
+        StepVerifier.create(watcher.watch(TEST_NAME).take(1))
+                .then(() -> watcher.onAdd(job))
+                .expectNext(job)
+                .verifyComplete();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testListByLabel() {
+        // Arrange
+        SharedIndexInformer<V1Job> informer = new DefaultSharedIndexInformer<>(V1Job.class, mock(ListerWatcher.class), 0);
+        ResourceWatcher<V1Job> labelWatcher = new ResourceWatcher<>("Job", informer);
+        V1Job job = job(TEST_NAME);
+        job.getMetadata().labels(Map.of("app", "test"));
+        informer.getIndexer().add(job);
+        informer.getIndexer().add(job(OTHER_NAME));
+
+        // Act
+        List<V1Job> actual = labelWatcher.listByLabel("app", "test");
+
+        // Assert
+        assertThat(actual).containsExactly(job);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWatchByLabelStartsWithCachedResources() {
+        // Arrange
+        SharedIndexInformer<V1Job> informer = new DefaultSharedIndexInformer<>(V1Job.class, mock(ListerWatcher.class), 0);
+        ResourceWatcher<V1Job> labelWatcher = new ResourceWatcher<>("Job", informer);
+        V1Job cached = job(TEST_NAME);
+        cached.getMetadata().labels(Map.of("app", "test"));
+        informer.getIndexer().add(cached);
+        V1Job updated = job(TEST_NAME);
+        updated.getMetadata().labels(Map.of("app", "test")).resourceVersion("2");
+
+        // Act
+        Flux<V1Job> actual = labelWatcher.watchByLabel("app", "test");
+
+        // Assert
+        StepVerifier.create(actual.take(2))
+                .expectNext(cached)
+                .then(() -> labelWatcher.onUpdate(cached, updated))
+                .expectNext(updated)
+                .verifyComplete();
+    }
+
+    private static V1Job job(String name) {
+        return new V1Job().metadata(new V1ObjectMeta().name(name));
+    }
+}
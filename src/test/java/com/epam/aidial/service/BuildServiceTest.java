@@ -1,9 +1,19 @@
 package com.epam.aidial.service;
 
+import com.epam.aidial.dto.BuildLogEventDto;
+import com.epam.aidial.dto.OperationProgressDto;
 import com.epam.aidial.kubernetes.KubernetesClient;
 import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.models.V1ContainerState;
+import io.kubernetes.client.openapi.models.V1ContainerStateRunning;
+import io.kubernetes.client.openapi.models.V1ContainerStateTerminated;
+import io.kubernetes.client.openapi.models.V1ContainerStatus;
 import io.kubernetes.client.openapi.models.V1Job;
 import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.openapi.models.V1Pod;
+import io.kubernetes.client.openapi.models.V1PodCondition;
+import io.kubernetes.client.openapi.models.V1PodList;
+import io.kubernetes.client.openapi.models.V1PodStatus;
 import io.kubernetes.client.openapi.models.V1Secret;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,13 +24,23 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(SpringExtension.class)
@@ -29,7 +49,11 @@ import static org.mockito.Mockito.when;
         "app.docker-registry=" + BuildServiceTest.TEST_REGISTRY,
         "app.max-error-log-lines=5",
         "app.max-error-log-chars=15",
-        "app.image-build-timeout-sec=5"
+        "app.error-log-tail-lines=100",
+        "app.image-build-timeout-sec=5",
+        "app.skip-unchanged-builds=true",
+        "app.builder-container=" + BuildServiceTest.TEST_CONTAINER,
+        "app.build-log-max-lines-per-sec=0"
 })
 @Import(BuildService.class)
 class BuildServiceTest {
@@ -42,9 +66,19 @@ class BuildServiceTest {
     private static final String TEST_JWT = "test-jwt";
     private static final V1Secret TEST_SECRET = new V1Secret().metadata(new V1ObjectMeta().name(TEST_NAME));
     private static final V1Job TEST_JOB = new V1Job().metadata(new V1ObjectMeta().name(TEST_NAME));
+    private static final List<DialService.FileMetadata> TEST_FILES = List.of(
+            new DialService.FileMetadata("files/bucket/test-sources/requirements.txt", null, 10, 1000),
+            new DialService.FileMetadata("files/bucket/test-sources/app.py", "test-etag", 20, 2000));
+    // SHA-256 of "test-runtime\n" followed by "<url> <etag> <length> <updated at>\n" of each file sorted by the URL
+    private static final String TEST_FINGERPRINT = "8812ed4ba3f6a497729dc2233a27bb761760255880ceac3665e7d8e13e8e472b";
+    private static final OffsetDateTime TEST_TIME = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+    private static final String FINGERPRINT_LABEL = "ai.epam.dial.app-controller.sources-fingerprint";
+
+    private static final String TEST_POD = "test-pod";
 
     static final String TEST_NAMESPACE = "test-namespace";
     static final String TEST_REGISTRY = "test-registry";
+    static final String TEST_CONTAINER = "test-container";
 
     @Autowired
     private BuildService buildService;
@@ -61,6 +95,9 @@ class BuildServiceTest {
     @MockitoBean
     private RegistryService registryService;
 
+    @MockitoBean
+    private DialService dialService;
+
     @Captor
     private ArgumentCaptor<String> secretConfigCaptor;
 
@@ -91,6 +128,12 @@ class BuildServiceTest {
     @Test
     void testBuild() {
         // Arrange
+        when(dialService.listFiles(TEST_SOURCES, TEST_API_KEY, TEST_JWT))
+                .thenReturn(Mono.just(TEST_FILES));
+        when(templateService.buildFingerprintInputs(TEST_RUNTIME))
+                .thenReturn(TEST_RUNTIME + "\n");
+        when(registryService.getImageLabel(TEST_NAME, FINGERPRINT_LABEL))
+                .thenReturn(Mono.just("other-fingerprint"));
         when(kubernetesService.buildClient()).thenReturn(kubernetesClient);
         when(templateService.dialAuthSecretConfig(
                 secretConfigCaptor.capture(),
@@ -102,6 +145,7 @@ class BuildServiceTest {
                 (V1Secret) createSecretCaptor.capture()))
                 .thenReturn(Mono.empty());
         when(templateService.buildJobConfig(
+                jobConfigCaptor.capture(),
                 jobConfigCaptor.capture(),
                 jobConfigCaptor.capture(),
                 jobConfigCaptor.capture()))
@@ -109,17 +153,27 @@ class BuildServiceTest {
         when(kubernetesClient.createJob(
                 (String) createJobCaptor.capture(),
                 (V1Job) createJobCaptor.capture(),
-                anyInt()))
-                .thenReturn(Mono.empty());
+                anyInt(),
+                any()))
+                .thenAnswer(invocation -> {
+                    invocation.<Consumer<V1Job>>getArgument(3).accept(new V1Job()
+                            .metadata(new V1ObjectMeta().name(TEST_NAME).creationTimestamp(TEST_TIME)));
+                    return Mono.empty();
+                });
+        when(kubernetesClient.watchJobPods(TEST_NAMESPACE, TEST_NAME))
+                .thenReturn(Flux.just(scheduledPod()));
+        when(kubernetesClient.getJobPods(TEST_NAMESPACE, TEST_NAME, true))
+                .thenReturn(Mono.just(new V1PodList().items(List.of(succeededPod()))));
         when(registryService.fullImageName(
                 fullImageNameCaptor.capture()))
                 .thenReturn(TEST_IMAGE);
 
         BuildService.BuildParameters buildParameters =
                 new BuildService.BuildParameters(TEST_NAME, TEST_SOURCES, TEST_API_KEY, TEST_JWT, TEST_RUNTIME);
+        List<OperationProgressDto> progress = new ArrayList<>();
 
         // Act
-        Mono<String> actual = buildService.build(buildParameters);
+        Mono<String> actual = buildService.build(buildParameters, progress::add);
 
         // Assert
         StepVerifier.create(actual)
@@ -131,11 +185,235 @@ class BuildServiceTest {
         assertThat(createSecretCaptor.getAllValues())
                 .isEqualTo(List.of(TEST_NAMESPACE, TEST_SECRET));
         assertThat(jobConfigCaptor.getAllValues())
-                .isEqualTo(List.of(TEST_NAME, TEST_SOURCES, TEST_RUNTIME));
+                .isEqualTo(List.of(TEST_NAME, TEST_SOURCES, TEST_RUNTIME, TEST_FINGERPRINT));
         assertThat(createJobCaptor.getAllValues())
                 .isEqualTo(List.of(TEST_NAMESPACE, TEST_JOB));
         assertThat(fullImageNameCaptor.getValue())
                 .isEqualTo(TEST_NAME);
+        verify(registryService).evictDigest(TEST_NAME);
+        assertThat(progress)
+                .extracting(OperationProgressDto::phase)
+                .containsExactly(
+                        OperationProgressDto.Phase.SECRET_CREATED,
+                        OperationProgressDto.Phase.JOB_CREATED,
+                        OperationProgressDto.Phase.POD_SCHEDULED,
+                        OperationProgressDto.Phase.SOURCES_DOWNLOADED,
+                        OperationProgressDto.Phase.BUILD_STARTED,
+                        OperationProgressDto.Phase.IMAGE_PUSHED);
+        assertThat(progress.get(5).timestamp())
+                .isEqualTo(TEST_TIME.plusSeconds(30).toInstant());
+    }
+
+    @Test
+    void testBuildSkipsUnchangedSources() {
+        // Arrange
+        when(dialService.listFiles(TEST_SOURCES, TEST_API_KEY, TEST_JWT))
+                .thenReturn(Mono.just(TEST_FILES));
+        when(templateService.buildFingerprintInputs(TEST_RUNTIME))
+                .thenReturn(TEST_RUNTIME + "\n");
+        when(registryService.getImageLabel(TEST_NAME, FINGERPRINT_LABEL))
+                .thenReturn(Mono.just(TEST_FINGERPRINT));
+        when(registryService.fullImageName(TEST_NAME))
+                .thenReturn(TEST_IMAGE);
+
+        BuildService.BuildParameters buildParameters =
+                new BuildService.BuildParameters(TEST_NAME, TEST_SOURCES, TEST_API_KEY, TEST_JWT, TEST_RUNTIME);
+
+        // Act
+        Mono<String> actual = buildService.build(buildParameters, progress -> {
+        });
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectNext(TEST_IMAGE)
+                .verifyComplete();
+
+        verify(kubernetesService, never()).buildClient();
+    }
+
+    @Test
+    void testBuildFailsWithValidationError() {
+        // Arrange
+        when(dialService.listFiles(TEST_SOURCES, TEST_API_KEY, TEST_JWT))
+                .thenReturn(Mono.error(new IllegalStateException("Not found")));
+        when(kubernetesService.buildClient()).thenReturn(kubernetesClient);
+        when(templateService.dialAuthSecretConfig(TEST_NAME, TEST_API_KEY, TEST_JWT))
+                .thenReturn(TEST_SECRET);
+        when(kubernetesClient.createSecret(TEST_NAMESPACE, TEST_SECRET))
+                .thenReturn(Mono.empty());
+        when(templateService.buildJobConfig(TEST_NAME, TEST_SOURCES, TEST_RUNTIME, null))
+                .thenReturn(TEST_JOB);
+        when(kubernetesClient.createJob(eq(TEST_NAMESPACE), eq(TEST_JOB), anyInt(), any()))
+                .thenReturn(Mono.error(new IllegalStateException("Job has failed")));
+        when(kubernetesClient.watchJobPods(TEST_NAMESPACE, TEST_NAME))
+                .thenReturn(Flux.never());
+        when(kubernetesClient.getJobPods(TEST_NAMESPACE, "app-ctrl-build-test-name", true))
+                .thenReturn(Mono.just(failedPodList()));
+        when(kubernetesClient.streamContainerLog(eq(TEST_NAMESPACE), eq(TEST_POD), eq(TEST_CONTAINER), any()))
+                .thenReturn(Flux.just("Downloading", "Traceback", "__main__.AppValidationException: Missing app.py"));
+        when(registryService.fullImageName(TEST_NAME))
+                .thenReturn(TEST_IMAGE);
+
+        BuildService.BuildParameters buildParameters =
+                new BuildService.BuildParameters(TEST_NAME, TEST_SOURCES, TEST_API_KEY, TEST_JWT, TEST_RUNTIME);
+
+        // Act
+        Mono<String> actual = buildService.build(buildParameters, progress -> {
+        });
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectErrorMessage("Validation error: Missing app.py")
+                .verify();
+    }
+
+    @Test
+    void testBuildFailsWithLogTail() {
+        // Arrange
+        when(dialService.listFiles(TEST_SOURCES, TEST_API_KEY, TEST_JWT))
+                .thenReturn(Mono.error(new IllegalStateException("Not found")));
+        when(kubernetesService.buildClient()).thenReturn(kubernetesClient);
+        when(templateService.dialAuthSecretConfig(TEST_NAME, TEST_API_KEY, TEST_JWT))
+                .thenReturn(TEST_SECRET);
+        when(kubernetesClient.createSecret(TEST_NAMESPACE, TEST_SECRET))
+                .thenReturn(Mono.empty());
+        when(templateService.buildJobConfig(TEST_NAME, TEST_SOURCES, TEST_RUNTIME, null))
+                .thenReturn(TEST_JOB);
+        when(kubernetesClient.createJob(eq(TEST_NAMESPACE), eq(TEST_JOB), anyInt(), any()))
+                .thenReturn(Mono.error(new IllegalStateException("Job has failed")));
+        when(kubernetesClient.watchJobPods(TEST_NAMESPACE, TEST_NAME))
+                .thenReturn(Flux.never());
+        when(kubernetesClient.getJobPods(TEST_NAMESPACE, "app-ctrl-build-test-name", true))
+                .thenReturn(Mono.just(failedPodList()));
+        when(kubernetesClient.streamContainerLog(eq(TEST_NAMESPACE), eq(TEST_POD), eq(TEST_CONTAINER), any()))
+                .thenReturn(Flux.just("first line", "second", "third"));
+        when(registryService.fullImageName(TEST_NAME))
+                .thenReturn(TEST_IMAGE);
+
+        BuildService.BuildParameters buildParameters =
+                new BuildService.BuildParameters(TEST_NAME, TEST_SOURCES, TEST_API_KEY, TEST_JWT, TEST_RUNTIME);
+
+        // Act
+        Mono<String> actual = buildService.build(buildParameters, progress -> {
+        });
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectErrorMessage("Failed to build image. Logs: second\nthird\n")
+                .verify();
+    }
+
+    @Test
+    void testCancelledBuildDeletesJobAndSecret() {
+        // Arrange
+        when(dialService.listFiles(TEST_SOURCES, TEST_API_KEY, TEST_JWT))
+                .thenReturn(Mono.error(new IllegalStateException("Not found")));
+        when(kubernetesService.buildClient()).thenReturn(kubernetesClient);
+        when(templateService.dialAuthSecretConfig(TEST_NAME, TEST_API_KEY, TEST_JWT))
+                .thenReturn(TEST_SECRET);
+        when(kubernetesClient.createSecret(TEST_NAMESPACE, TEST_SECRET))
+                .thenReturn(Mono.empty());
+        when(templateService.buildJobConfig(TEST_NAME, TEST_SOURCES, TEST_RUNTIME, null))
+                .thenReturn(TEST_JOB);
+        when(kubernetesClient.createJob(eq(TEST_NAMESPACE), eq(TEST_JOB), anyInt(), any()))
+                .thenReturn(Mono.never());
+        when(kubernetesClient.watchJobPods(TEST_NAMESPACE, TEST_NAME))
+                .thenReturn(Flux.never());
+        when(kubernetesClient.deleteJob(TEST_NAMESPACE, "app-ctrl-build-test-name"))
+                .thenReturn(Mono.empty());
+        when(kubernetesClient.deleteSecret(TEST_NAMESPACE, "app-ctrl-dial-auth-test-name"))
+                .thenReturn(Mono.error(new ApiException(404, "Not found")));
+        when(registryService.fullImageName(TEST_NAME))
+                .thenReturn(TEST_IMAGE);
+
+        BuildService.BuildParameters buildParameters =
+                new BuildService.BuildParameters(TEST_NAME, TEST_SOURCES, TEST_API_KEY, TEST_JWT, TEST_RUNTIME);
+
+        // Act
+        buildService.build(buildParameters, progress -> {
+        })
+                .subscribe()
+                .dispose();
+
+        // Assert
+        verify(kubernetesClient).deleteJob(TEST_NAMESPACE, "app-ctrl-build-test-name");
+        verify(kubernetesClient).deleteSecret(TEST_NAMESPACE, "app-ctrl-dial-auth-test-name");
+    }
+
+    @Test
+    void testFollowLogs() {
+        // Arrange
+        when(kubernetesService.buildClient()).thenReturn(kubernetesClient);
+        when(kubernetesClient.watchJobPods(TEST_NAMESPACE, "app-ctrl-build-test-name"))
+                .thenReturn(Flux.just(scheduledPod(), succeededPod(), succeededPod()));
+        when(kubernetesClient.streamContainerLog(eq(TEST_NAMESPACE), eq(TEST_POD), eq("template"), any()))
+                .thenReturn(Flux.just("downloading"));
+        when(kubernetesClient.streamContainerLog(eq(TEST_NAMESPACE), eq(TEST_POD), eq(TEST_CONTAINER), any()))
+                .thenReturn(Flux.just("building", "pushing"));
+
+        // Act
+        Flux<BuildLogEventDto> actual = buildService.followLogs(TEST_NAME);
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectNext(new BuildLogEventDto("template", "downloading"))
+                .expectNext(new BuildLogEventDto(TEST_CONTAINER, "building"))
+                .expectNext(new BuildLogEventDto(TEST_CONTAINER, "pushing"))
+                .verifyComplete();
+    }
+
+    @Test
+    void testFollowLogsOfBuildInFlight() {
+        // Arrange
+        V1Pod buildingPod = succeededPod();
+        buildingPod.getStatus().getContainerStatuses().get(0)
+                .state(new V1ContainerState().running(new V1ContainerStateRunning().startedAt(TEST_TIME.plusSeconds(11))));
+        when(kubernetesService.buildClient()).thenReturn(kubernetesClient);
+        // The cached pod comes first and doesn't change while the caller follows the build
+        when(kubernetesClient.watchJobPods(TEST_NAMESPACE, "app-ctrl-build-test-name"))
+                .thenReturn(Flux.concat(Flux.just(buildingPod), Flux.never()));
+        when(kubernetesClient.streamContainerLog(eq(TEST_NAMESPACE), eq(TEST_POD), eq("template"), any()))
+                .thenReturn(Flux.just("downloaded"));
+        when(kubernetesClient.streamContainerLog(eq(TEST_NAMESPACE), eq(TEST_POD), eq(TEST_CONTAINER), any()))
+                .thenReturn(Flux.just("building"));
+
+        // Act
+        Flux<BuildLogEventDto> actual = buildService.followLogs(TEST_NAME);
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectNext(new BuildLogEventDto("template", "downloaded"))
+                .expectNext(new BuildLogEventDto(TEST_CONTAINER, "building"))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void testFollowLogsSharesStreamsBetweenCallers() {
+        // Arrange
+        Sinks.Many<String> buildLog = Sinks.many().multicast().directBestEffort();
+        when(kubernetesService.buildClient()).thenReturn(kubernetesClient);
+        when(kubernetesClient.watchJobPods(TEST_NAMESPACE, "app-ctrl-build-test-name"))
+                .thenReturn(Flux.concat(Flux.just(succeededPod()), Flux.never()));
+        when(kubernetesClient.streamContainerLog(eq(TEST_NAMESPACE), eq(TEST_POD), eq("template"), any()))
+                .thenReturn(Flux.empty());
+        when(kubernetesClient.streamContainerLog(eq(TEST_NAMESPACE), eq(TEST_POD), eq(TEST_CONTAINER), any()))
+                .thenReturn(buildLog.asFlux());
+        List<BuildLogEventDto> first = new ArrayList<>();
+        List<BuildLogEventDto> second = new ArrayList<>();
+
+        // Act
+        Disposable firstCaller = buildService.followLogs(TEST_NAME).subscribe(first::add);
+        Disposable secondCaller = buildService.followLogs(TEST_NAME).subscribe(second::add);
+        buildLog.tryEmitNext("building");
+        firstCaller.dispose();
+        secondCaller.dispose();
+
+        // Assert
+        assertThat(first).containsExactly(new BuildLogEventDto(TEST_CONTAINER, "building"));
+        assertThat(second).containsExactly(new BuildLogEventDto(TEST_CONTAINER, "building"));
+        verify(kubernetesClient).watchJobPods(TEST_NAMESPACE, "app-ctrl-build-test-name");
+        verify(kubernetesClient).streamContainerLog(eq(TEST_NAMESPACE), eq(TEST_POD), eq(TEST_CONTAINER), any());
     }
 
     @Test
@@ -207,4 +485,39 @@ class BuildServiceTest {
         assertThat(getDigestCaptor.getValue())
                 .isEqualTo(TEST_NAME);
     }
+
+    private static V1Pod scheduledPod() {
+        return new V1Pod()
+                .metadata(new V1ObjectMeta().name(TEST_POD))
+                .status(new V1PodStatus()
+                        .addConditionsItem(new V1PodCondition().type("PodScheduled").status("True").lastTransitionTime(TEST_TIME.plusSeconds(1)))
+                        .addInitContainerStatusesItem(new V1ContainerStatus()
+                                .name("template")
+                                .state(new V1ContainerState().running(new V1ContainerStateRunning().startedAt(TEST_TIME.plusSeconds(2))))));
+    }
+
+    private static V1Pod succeededPod() {
+        return new V1Pod()
+                .metadata(new V1ObjectMeta().name(TEST_POD))
+                .status(new V1PodStatus()
+                        .addConditionsItem(new V1PodCondition().type("PodScheduled").status("True").lastTransitionTime(TEST_TIME.plusSeconds(1)))
+                        .addInitContainerStatusesItem(new V1ContainerStatus()
+                                .name("template")
+                                .state(new V1ContainerState().terminated(new V1ContainerStateTerminated()
+                                        .exitCode(0).finishedAt(TEST_TIME.plusSeconds(10)))))
+                        .addContainerStatusesItem(new V1ContainerStatus()
+                                .name(TEST_CONTAINER)
+                                .state(new V1ContainerState().terminated(new V1ContainerStateTerminated()
+                                        .exitCode(0).startedAt(TEST_TIME.plusSeconds(11)).finishedAt(TEST_TIME.plusSeconds(30))))));
+    }
+
+    private static V1PodList failedPodList() {
+        V1ContainerStatus containerStatus = new V1ContainerStatus()
+                .name(TEST_CONTAINER)
+                .state(new V1ContainerState().terminated(new V1ContainerStateTerminated().exitCode(1)));
+        V1Pod pod = new V1Pod()
+                .metadata(new V1ObjectMeta().name(TEST_POD))
+                .status(new V1PodStatus().phase("Failed").containerStatuses(List.of(containerStatus)));
+        return new V1PodList().items(List.of(pod));
+    }
 }
\ No newline at end of file
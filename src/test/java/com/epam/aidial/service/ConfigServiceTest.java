@@ -59,13 +59,45 @@ class ConfigServiceTest {
         V1Job expected = readExpected("build-job", V1Job.class);
 
         // Act
-        V1Job actual = configService.buildJobConfig(TEST_NAME, "test-sources", "python3.11");
+        V1Job actual = configService.buildJobConfig(TEST_NAME, "test-sources", "python3.11", null);
 
         // Assert
         assertThat(Yaml.dump(actual)).isEqualTo(Yaml.dump(expected));
         assertThat(fullImageNameCaptor.getValue()).isEqualTo(TEST_NAME);
     }
 
+    @Test
+    void testBuildJobConfigWithFingerprint() {
+        // Arrange
+        when(registryService.fullImageName(TEST_NAME))
+                .thenReturn(TEST_IMAGE_NAME);
+
+        // Act
+        V1Job actual = configService.buildJobConfig(TEST_NAME, "test-sources", "python3.11", "test-fingerprint");
+
+        // Assert
+        assertThat(actual.getSpec().getTemplate().getSpec().getContainers().get(0).getArgs())
+                .endsWith("--label=ai.epam.dial.app-controller.sources-fingerprint=test-fingerprint");
+    }
+
+    @Test
+    void testBuildFingerprintInputs() {
+        // Arrange
+        when(registryService.fullImageName("fingerprint"))
+                .thenReturn(TEST_IMAGE_NAME);
+
+        // Act
+        String actual = configService.buildFingerprintInputs("python3.11");
+
+        // Assert
+        assertThat(actual)
+                .contains("test-template-image", "test-builder-image", "test-dial-base-url")
+                .contains("--dockerfile=/templates/python-pip/Dockerfile", "--build-arg=PYTHON_IMAGE=python:3.11-slim")
+                .doesNotContain(TEST_NAME);
+        assertThat(configService.buildFingerprintInputs("python3.11")).isEqualTo(actual);
+        assertThat(configService.buildFingerprintInputs("python3.10")).isNotEqualTo(actual);
+    }
+
     @Test
     void testAppServiceConfig() throws IOException {
         // Arrange
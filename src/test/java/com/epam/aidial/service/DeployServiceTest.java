@@ -1,9 +1,21 @@
 package com.epam.aidial.service;
 
+import com.epam.aidial.dto.ApplicationLogEventDto;
+import com.epam.aidial.dto.GetApplicationLogsResponseDto;
+import com.epam.aidial.dto.OperationProgressDto;
 import com.epam.aidial.kubernetes.KubernetesClient;
+import com.epam.aidial.kubernetes.LogOptions;
+import com.epam.aidial.kubernetes.knative.V1Condition;
 import com.epam.aidial.kubernetes.knative.V1Service;
+import com.epam.aidial.kubernetes.knative.V1ServiceStatus;
 import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.models.V1ContainerState;
+import io.kubernetes.client.openapi.models.V1ContainerStateRunning;
+import io.kubernetes.client.openapi.models.V1ContainerStatus;
 import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.openapi.models.V1Pod;
+import io.kubernetes.client.openapi.models.V1PodList;
+import io.kubernetes.client.openapi.models.V1PodStatus;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -13,20 +25,32 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(SpringExtension.class)
 @TestPropertySource(properties = {
         "app.deploy-namespace=" + DeployServiceTest.TEST_NAMESPACE,
-        "app.service-setup-timeout-sec=5"
+        "app.service-setup-timeout-sec=5",
+        "app.service-container=" + DeployServiceTest.TEST_CONTAINER,
+        "app.log-follow-tail-lines=10",
+        "app.log-follow-refresh-sec=60",
+        "app.log-coalescing-window-ms=0"
 })
 @Import(DeployService.class)
 class DeployServiceTest {
@@ -34,8 +58,11 @@ class DeployServiceTest {
     private static final String TEST_NAME = "test-name";
     private static final String TEST_URL = "url";
     private static final String TEST_SERVICE_VERSION = "test-service-version";
+    private static final String TEST_POD = "test-pod";
+    private static final OffsetDateTime TEST_READY_TIME = OffsetDateTime.parse("2024-01-01T00:00:10Z");
 
     static final String TEST_NAMESPACE = "test-namespace";
+    static final String TEST_CONTAINER = "test-container";
 
     @Autowired
     private DeployService deployService;
@@ -58,6 +85,9 @@ class DeployServiceTest {
     @Captor
     private ArgumentCaptor<String> deleteServiceCaptor;
 
+    @Captor
+    private ArgumentCaptor<LogOptions> logOptionsCaptor;
+
     @Test
     @SuppressWarnings("unchecked")
     void testDeploy() {
@@ -69,20 +99,41 @@ class DeployServiceTest {
                 (String) appServiceConfigCaptor.capture(),
                 (Map<String, String>) appServiceConfigCaptor.capture()))
                 .thenReturn(testService);
+        V1Service readyService = new V1Service();
+        readyService.setMetadata(new V1ObjectMeta().name(TEST_NAME));
+        V1ServiceStatus readyStatus = new V1ServiceStatus();
+        readyStatus.setLatestCreatedRevisionName("test-revision");
+        V1Condition readyCondition = new V1Condition();
+        readyCondition.setType("Ready");
+        readyCondition.setStatus("True");
+        readyCondition.setLastTransitionTime(TEST_READY_TIME);
+        readyStatus.setConditions(new V1Condition[] {readyCondition});
+        readyService.setStatus(readyStatus);
         when(kubernetesClient.createKnativeService(
                 (String) createServiceCaptor.capture(),
                 (V1Service) createServiceCaptor.capture(),
-                anyInt()))
-                .thenReturn(Mono.just(TEST_URL));
+                anyInt(),
+                any()))
+                .thenAnswer(invocation -> {
+                    invocation.<Consumer<V1Service>>getArgument(3).accept(readyService);
+                    return Mono.just(TEST_URL);
+                });
+        List<OperationProgressDto> progress = new ArrayList<>();
 
         // Act
-        Mono<String> actual = deployService.deploy(TEST_NAME, TEST_ENV);
+        Mono<String> actual = deployService.deploy(TEST_NAME, TEST_ENV, progress::add);
 
         // Assert
         StepVerifier.create(actual)
                 .expectNext(TEST_URL)
                 .verifyComplete();
 
+        assertThat(progress)
+                .extracting(OperationProgressDto::phase)
+                .containsExactly(OperationProgressDto.Phase.REVISION_CREATED, OperationProgressDto.Phase.READY);
+        assertThat(progress.get(1).timestamp())
+                .isEqualTo(TEST_READY_TIME.toInstant());
+
         assertThat(appServiceConfigCaptor.getAllValues())
                 .isEqualTo(List.of(TEST_NAME, TEST_ENV));
         assertThat(createServiceCaptor.getAllValues())
@@ -134,4 +185,162 @@ class DeployServiceTest {
         assertThat(deleteServiceCaptor.getAllValues())
                 .isEqualTo(List.of(TEST_NAMESPACE, "app-ctrl-app-test-name", TEST_SERVICE_VERSION));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFollowLogs() {
+        // Arrange
+        when(kubernetesService.deployClient()).thenReturn(kubernetesClient);
+        when(kubernetesClient.getKnativeServicePods(TEST_NAMESPACE, "app-ctrl-app-test-name"))
+                .thenReturn(Mono.just(new V1PodList().items(List.of(readyPod(TEST_POD)))));
+        when(kubernetesClient.streamContainerLog(
+                eq(TEST_NAMESPACE),
+                eq(TEST_POD),
+                eq(TEST_CONTAINER),
+                logOptionsCaptor.capture()))
+                .thenReturn(Flux.just("2024-01-01T00:00:01.2Z line1", "line2"));
+
+        // Act
+        Flux<ApplicationLogEventDto> actual = deployService.followLogs(TEST_NAME);
+
+        // Assert
+        StepVerifier.create(actual.take(2))
+                .expectNext(new ApplicationLogEventDto(TEST_POD, "line1"))
+                .expectNext(new ApplicationLogEventDto(TEST_POD, "line2"))
+                .verifyComplete();
+
+        assertThat(logOptionsCaptor.getValue())
+                .isEqualTo(LogOptions.builder().tailLines(10).timestamps(true).follow(true).build());
+    }
+
+    @Test
+    void testFollowLogsSkipsPendingPodsAndRefollowsEndedStreams() {
+        // Arrange
+        V1Pod pendingPod = new V1Pod()
+                .metadata(new V1ObjectMeta().name("pending-pod"))
+                .status(new V1PodStatus().phase("Pending"));
+        when(kubernetesService.deployClient()).thenReturn(kubernetesClient);
+        when(kubernetesClient.getKnativeServicePods(TEST_NAMESPACE, "app-ctrl-app-test-name"))
+                .thenReturn(Mono.just(new V1PodList().items(List.of(pendingPod, readyPod(TEST_POD)))));
+        when(kubernetesClient.streamContainerLog(
+                eq(TEST_NAMESPACE),
+                eq(TEST_POD),
+                eq(TEST_CONTAINER),
+                logOptionsCaptor.capture()))
+                .thenReturn(Flux.just("2024-01-01T00:00:01.2Z line1", "2024-01-01T00:00:01.5Z line2"))
+                .thenReturn(Flux.just("2024-01-01T00:00:01.2Z line1", "2024-01-01T00:00:01.5Z line2", "2024-01-01T00:00:02.1Z line3"));
+
+        // Act & Assert
+        StepVerifier.withVirtualTime(() -> deployService.followLogs(TEST_NAME))
+                .expectNext(new ApplicationLogEventDto(TEST_POD, "line1"))
+                .expectNext(new ApplicationLogEventDto(TEST_POD, "line2"))
+                .thenAwait(Duration.ofSeconds(60))
+                .expectNext(new ApplicationLogEventDto(TEST_POD, "line3"))
+                .thenCancel()
+                .verify();
+
+        assertThat(logOptionsCaptor.getAllValues()).containsExactly(
+                LogOptions.builder().tailLines(10).timestamps(true).follow(true).build(),
+                LogOptions.builder().sinceTime(Instant.parse("2024-01-01T00:00:01.5Z")).timestamps(true).follow(true).build());
+    }
+
+    @Test
+    void testLogsWithCursor() {
+        // Arrange
+        Instant cursorTime = Instant.parse("2024-01-01T00:00:01.5Z");
+        when(kubernetesService.deployClient()).thenReturn(kubernetesClient);
+        when(kubernetesClient.getKnativeServicePods(TEST_NAMESPACE, "app-ctrl-app-test-name"))
+                .thenReturn(Mono.just(new V1PodList().items(List.of(readyPod(TEST_POD)))));
+        when(kubernetesClient.getContainerLog(
+                eq(TEST_NAMESPACE),
+                eq(TEST_POD),
+                eq(TEST_CONTAINER),
+                logOptionsCaptor.capture()))
+                .thenReturn(Mono.just("""
+                        2024-01-01T00:00:01.2Z old
+                        2024-01-01T00:00:01.5Z old
+                        2024-01-01T00:00:01.7Z new1
+                        2024-01-01T00:00:02.1Z new2
+                        2024-01-01T00:00:02.3Z incompl"""));
+        DeployService.LogParameters params = new DeployService.LogParameters(
+                null, null, null, 1000, List.of(TEST_POD + "/" + cursorTime));
+
+        // Act
+        Mono<List<GetApplicationLogsResponseDto.LogEntry>> actual = deployService.logs(TEST_NAME, params);
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectNext(List.of(new GetApplicationLogsResponseDto.LogEntry(
+                        TEST_POD, "new1\nnew2\n", TEST_POD + "/2024-01-01T00:00:02.100Z")))
+                .verifyComplete();
+
+        assertThat(logOptionsCaptor.getValue())
+                .isEqualTo(LogOptions.builder().sinceTime(cursorTime).limitBytes(1000).timestamps(true).build());
+    }
+
+    @Test
+    void testLogsWithCursorInSecondExceedingLimit() {
+        // Arrange
+        Instant cursorTime = Instant.parse("2024-01-01T00:00:01.5Z");
+        when(kubernetesService.deployClient()).thenReturn(kubernetesClient);
+        when(kubernetesClient.getKnativeServicePods(TEST_NAMESPACE, "app-ctrl-app-test-name"))
+                .thenReturn(Mono.just(new V1PodList().items(List.of(readyPod(TEST_POD)))));
+        when(kubernetesClient.getContainerLog(eq(TEST_NAMESPACE), eq(TEST_POD), eq(TEST_CONTAINER), any()))
+                .thenReturn(Mono.just("""
+                        2024-01-01T00:00:01.2Z old
+                        2024-01-01T00:00:01.5Z ol"""));
+        when(kubernetesClient.streamContainerLog(eq(TEST_NAMESPACE), eq(TEST_POD), eq(TEST_CONTAINER), logOptionsCaptor.capture()))
+                .thenReturn(Flux.just(
+                        "2024-01-01T00:00:01.2Z old",
+                        "2024-01-01T00:00:01.5Z old",
+                        "2024-01-01T00:00:01.7Z new1",
+                        "2024-01-01T00:00:02.1Z new2",
+                        "2024-01-01T00:00:02.3Z new3"));
+        DeployService.LogParameters params = new DeployService.LogParameters(
+                null, null, null, 10, List.of(TEST_POD + "/" + cursorTime));
+
+        // Act
+        Mono<List<GetApplicationLogsResponseDto.LogEntry>> actual = deployService.logs(TEST_NAME, params);
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectNext(List.of(new GetApplicationLogsResponseDto.LogEntry(
+                        TEST_POD, "new1\nnew2\n", TEST_POD + "/2024-01-01T00:00:02.100Z")))
+                .verifyComplete();
+
+        assertThat(logOptionsCaptor.getValue())
+                .isEqualTo(LogOptions.builder().sinceTime(cursorTime).timestamps(true).build());
+    }
+
+    @Test
+    void testLogsWithCursorBeforeLineExceedingLimit() {
+        // Arrange
+        Instant cursorTime = Instant.parse("2024-01-01T00:00:01.5Z");
+        when(kubernetesService.deployClient()).thenReturn(kubernetesClient);
+        when(kubernetesClient.getKnativeServicePods(TEST_NAMESPACE, "app-ctrl-app-test-name"))
+                .thenReturn(Mono.just(new V1PodList().items(List.of(readyPod(TEST_POD)))));
+        when(kubernetesClient.getContainerLog(eq(TEST_NAMESPACE), eq(TEST_POD), eq(TEST_CONTAINER), any()))
+                .thenReturn(Mono.just("2024-01-01T00:00:01.7Z long"));
+        when(kubernetesClient.streamContainerLog(eq(TEST_NAMESPACE), eq(TEST_POD), eq(TEST_CONTAINER), any()))
+                .thenReturn(Flux.just("2024-01-01T00:00:01.7Z long line", "2024-01-01T00:00:02.1Z next"));
+        DeployService.LogParameters params = new DeployService.LogParameters(
+                null, null, null, 4, List.of(TEST_POD + "/" + cursorTime));
+
+        // Act
+        Mono<List<GetApplicationLogsResponseDto.LogEntry>> actual = deployService.logs(TEST_NAME, params);
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectNext(List.of(new GetApplicationLogsResponseDto.LogEntry(
+                        TEST_POD, "long", TEST_POD + "/2024-01-01T00:00:01.700Z")))
+                .verifyComplete();
+    }
+
+    private static V1Pod readyPod(String name) {
+        V1ContainerStatus containerStatus = new V1ContainerStatus()
+                .name(TEST_CONTAINER)
+                .state(new V1ContainerState().running(new V1ContainerStateRunning()));
+        return new V1Pod()
+                .metadata(new V1ObjectMeta().name(name))
+                .status(new V1PodStatus().containerStatuses(List.of(containerStatus)));
+    }
+}
@@ -0,0 +1,79 @@
+package com.epam.aidial.service;
+
+import com.epam.aidial.util.RetryPolicy;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DialServiceTest {
+    private static final String TEST_SOURCES = "files/bucket/test%20sources/";
+
+    private MockWebServer server;
+    private DialService dialService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        dialService = new DialService(
+                new OkHttpClient(), new RetryPolicy(0, Duration.ZERO, Duration.ZERO), server.url("/").toString());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void testListFilesFollowsPages() throws Exception {
+        // Arrange
+        server.enqueue(new MockResponse().setBody("""
+                {"nodeType": "FOLDER", "nextToken": "test-token", "items": [
+                  {"resourceType": "FILE", "url": "files/bucket/test%20sources/app.py", "etag": "test-etag",
+                   "contentLength": 20, "updatedAt": 2000}
+                ]}
+                """));
+        server.enqueue(new MockResponse().setBody("""
+                {"nodeType": "FOLDER", "items": [
+                  {"resourceType": "FILE", "url": "files/bucket/test%20sources/requirements.txt",
+                   "contentLength": 10, "updatedAt": 1000}
+                ]}
+                """));
+
+        // Act & Assert
+        StepVerifier.create(dialService.listFiles(TEST_SOURCES, "test-api-key", "test-jwt"))
+                .expectNext(List.of(
+                        new DialService.FileMetadata("files/bucket/test%20sources/app.py", "test-etag", 20, 2000),
+                        new DialService.FileMetadata("files/bucket/test%20sources/requirements.txt", null, 10, 1000)))
+                .verifyComplete();
+
+        RecordedRequest first = server.takeRequest();
+        assertThat(first.getPath()).isEqualTo("/v1/metadata/files/bucket/test%20sources/?recursive=true");
+        assertThat(first.getHeader("api-key")).isEqualTo("test-api-key");
+        assertThat(first.getHeader("Authorization")).isEqualTo("Bearer test-jwt");
+        RecordedRequest second = server.takeRequest();
+        assertThat(second.getRequestUrl().queryParameter("token")).isEqualTo("test-token");
+    }
+
+    @Test
+    void testListFilesFailsForFile() {
+        // Arrange
+        server.enqueue(new MockResponse().setBody("{\"nodeType\": \"ITEM\"}"));
+
+        // Act & Assert
+        StepVerifier.create(dialService.listFiles(TEST_SOURCES, null, null))
+                .expectErrorMessage("Sources path must be a folder")
+                .verify();
+    }
+}
@@ -0,0 +1,137 @@
+package com.epam.aidial.service;
+
+import com.epam.aidial.dto.DeleteUnusedImagesProgressDto;
+import com.epam.aidial.kubernetes.KubernetesClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@TestPropertySource(properties = {
+        "app.build-namespace=" + ImageCleanupServiceTest.TEST_BUILD_NAMESPACE,
+        "app.deploy-namespace=" + ImageCleanupServiceTest.TEST_DEPLOY_NAMESPACE,
+        "app.image-cleanup-concurrency=2"
+})
+@Import(ImageCleanupService.class)
+class ImageCleanupServiceTest {
+    private static final String TEST_SERVICE_VERSION = "serving.knative.dev/v1";
+    private static final String TEST_DIGEST = "test-digest";
+    private static final String UNUSED_NAME = "unused";
+    private static final String BUILT_NAME = "built";
+    private static final String DEPLOYED_NAME = "deployed";
+    private static final String DELETED_NAME = "deleted";
+
+    static final String TEST_BUILD_NAMESPACE = "test-build-namespace";
+    static final String TEST_DEPLOY_NAMESPACE = "test-deploy-namespace";
+
+    @Autowired
+    private ImageCleanupService imageCleanupService;
+
+    @MockitoBean
+    private KubernetesClient kubernetesClient;
+
+    @MockitoBean
+    private KubernetesService kubernetesService;
+
+    @MockitoBean
+    private RegistryService registryService;
+
+    @BeforeEach
+    void setUp() {
+        when(kubernetesService.buildClient()).thenReturn(kubernetesClient);
+        when(kubernetesService.deployClient()).thenReturn(kubernetesClient);
+        when(kubernetesService.getKnativeServiceVersion()).thenReturn(TEST_SERVICE_VERSION);
+        when(registryService.listImages())
+                .thenReturn(Flux.just(UNUSED_NAME, BUILT_NAME, DEPLOYED_NAME, DELETED_NAME));
+        when(kubernetesClient.listJobNames(TEST_BUILD_NAMESPACE))
+                .thenReturn(Mono.just(Set.of("app-ctrl-build-" + BUILT_NAME)));
+        when(kubernetesClient.listSecretNames(TEST_BUILD_NAMESPACE))
+                .thenReturn(Mono.just(Set.of("app-ctrl-dial-auth-" + BUILT_NAME)));
+        when(kubernetesClient.listKnativeServiceNames(TEST_DEPLOY_NAMESPACE, TEST_SERVICE_VERSION))
+                .thenReturn(Mono.just(Set.of("app-ctrl-app-" + DEPLOYED_NAME)));
+        when(registryService.hasImage(UNUSED_NAME)).thenReturn(Mono.just(true));
+        when(registryService.hasImage(DELETED_NAME)).thenReturn(Mono.just(false));
+        when(kubernetesClient.hasJob(TEST_BUILD_NAMESPACE, "app-ctrl-build-" + UNUSED_NAME)).thenReturn(Mono.just(false));
+        when(kubernetesClient.hasSecret(TEST_BUILD_NAMESPACE, "app-ctrl-dial-auth-" + UNUSED_NAME)).thenReturn(Mono.just(false));
+        when(kubernetesClient.hasKnativeService(TEST_DEPLOY_NAMESPACE, "app-ctrl-app-" + UNUSED_NAME, TEST_SERVICE_VERSION))
+                .thenReturn(Mono.just(false));
+    }
+
+    @Test
+    void testDeleteUnusedImages() {
+        // Arrange
+        when(registryService.getDigest(UNUSED_NAME, true)).thenReturn(Mono.just(TEST_DIGEST));
+        when(registryService.deleteManifest(UNUSED_NAME, TEST_DIGEST)).thenReturn(Mono.just(true));
+
+        // Act
+        Flux<DeleteUnusedImagesProgressDto> actual = imageCleanupService.deleteUnusedImages(false);
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectNext(new DeleteUnusedImagesProgressDto(UNUSED_NAME, true, null, 1, 1))
+                .verifyComplete();
+
+        verify(registryService, never()).hasImage(BUILT_NAME);
+        verify(registryService, never()).hasImage(DEPLOYED_NAME);
+    }
+
+    @Test
+    void testDeleteUnusedImagesKeepsImagesOfApplicationsCreatedDuringScan() {
+        // Arrange
+        when(registryService.getDigest(UNUSED_NAME, true)).thenReturn(Mono.just(TEST_DIGEST));
+        when(kubernetesClient.hasKnativeService(TEST_DEPLOY_NAMESPACE, "app-ctrl-app-" + UNUSED_NAME, TEST_SERVICE_VERSION))
+                .thenReturn(Mono.just(true));
+
+        // Act
+        Flux<DeleteUnusedImagesProgressDto> actual = imageCleanupService.deleteUnusedImages(false);
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectNext(new DeleteUnusedImagesProgressDto(UNUSED_NAME, false, null, 1, 1))
+                .verifyComplete();
+
+        verify(registryService, never()).deleteManifest(anyString(), anyString());
+    }
+
+    @Test
+    void testDeleteUnusedImagesDryRun() {
+        // Act
+        Flux<DeleteUnusedImagesProgressDto> actual = imageCleanupService.deleteUnusedImages(true);
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectNext(new DeleteUnusedImagesProgressDto(UNUSED_NAME, false, null, 1, 1))
+                .verifyComplete();
+
+        verify(registryService, never()).deleteManifest(anyString(), anyString());
+    }
+
+    @Test
+    void testDeleteUnusedImagesReportsFailures() {
+        // Arrange
+        when(registryService.getDigest(UNUSED_NAME, true)).thenReturn(Mono.error(new IllegalStateException("test-error")));
+
+        // Act
+        Flux<DeleteUnusedImagesProgressDto> actual = imageCleanupService.deleteUnusedImages(false);
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectNext(new DeleteUnusedImagesProgressDto(UNUSED_NAME, false, "test-error", 1, 1))
+                .verifyComplete();
+    }
+}
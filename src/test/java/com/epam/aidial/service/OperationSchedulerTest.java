@@ -0,0 +1,134 @@
+package com.epam.aidial.service;
+
+import com.epam.aidial.config.AppConfiguration;
+import com.epam.aidial.dto.ErrorResponseDto;
+import com.epam.aidial.util.SseUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@TestPropertySource(properties = {
+        "app.max-running-builds=2",
+        "app.max-running-builds-per-tenant=1",
+        "app.max-running-deploys=1",
+        "app.max-running-deploys-per-tenant=1"
+})
+@Import({OperationScheduler.class, AppConfiguration.class, SimpleMeterRegistry.class})
+class OperationSchedulerTest {
+    private static final String TEST_NAME = "test-name";
+    private static final String TEST_TENANT = "test-tenant";
+
+    @Autowired
+    private OperationScheduler operationScheduler;
+
+    @Test
+    void testCancelStopsOperation() {
+        // Arrange
+        AtomicBoolean stopped = new AtomicBoolean();
+        List<ServerSentEvent<Object>> events = new ArrayList<>();
+        operationScheduler.schedule(OperationScheduler.OperationType.BUILD, TEST_TENANT, TEST_NAME, "test-key",
+                        () -> Flux.<ServerSentEvent<Object>>never().doOnCancel(() -> stopped.set(true)))
+                .subscribe(events::add);
+
+        // Act
+        boolean cancelled = operationScheduler.cancel(OperationScheduler.OperationType.BUILD, TEST_NAME);
+
+        // Assert
+        assertThat(cancelled).isTrue();
+        assertThat(stopped).isTrue();
+        assertThat(events).containsExactly(SseUtils.error(new ErrorResponseDto("Operation has been cancelled")));
+        assertThat(operationScheduler.cancel(OperationScheduler.OperationType.BUILD, TEST_NAME)).isFalse();
+    }
+
+    @Test
+    void testCancelRemovesWaitingOperation() {
+        // Arrange
+        AtomicBoolean started = new AtomicBoolean();
+        List<ServerSentEvent<Object>> events = new ArrayList<>();
+        operationScheduler.schedule(OperationScheduler.OperationType.DEPLOY, TEST_TENANT, "other-name", "first-key", Flux::never)
+                .subscribe();
+        operationScheduler.schedule(OperationScheduler.OperationType.DEPLOY, TEST_TENANT, TEST_NAME, "second-key",
+                        () -> Mono.fromRunnable(() -> started.set(true)).thenMany(Flux.never()))
+                .subscribe(events::add);
+
+        // Act
+        boolean cancelled = operationScheduler.cancel(OperationScheduler.OperationType.DEPLOY, TEST_NAME);
+
+        // Assert
+        assertThat(cancelled).isTrue();
+        assertThat(started).isFalse();
+        assertThat(events).extracting(ServerSentEvent::event).containsExactly("queue", "error");
+        assertThat(operationScheduler.cancel(OperationScheduler.OperationType.BUILD, "other-name")).isFalse();
+    }
+
+    @Test
+    void testRequestsForApplicationShareOperation() {
+        // Arrange
+        AtomicInteger starts = new AtomicInteger();
+        Supplier<Flux<ServerSentEvent<Object>>> operation = () -> Mono.fromRunnable(starts::incrementAndGet)
+                .thenMany(Flux.never());
+        List<ServerSentEvent<Object>> attached = new ArrayList<>();
+        List<ServerSentEvent<Object>> rejected = new ArrayList<>();
+        operationScheduler.schedule(OperationScheduler.OperationType.BUILD, TEST_TENANT, TEST_NAME, "test-parameters", operation)
+                .subscribe();
+
+        // Act
+        operationScheduler.schedule(OperationScheduler.OperationType.BUILD, "other-tenant", TEST_NAME, "test-parameters", operation)
+                .subscribe(attached::add);
+        operationScheduler.schedule(OperationScheduler.OperationType.BUILD, TEST_TENANT, TEST_NAME, "other-parameters", operation)
+                .subscribe(rejected::add);
+
+        // Assert
+        assertThat(starts).hasValue(1);
+        assertThat(attached).isEmpty();
+        assertThat(rejected).containsExactly(
+                SseUtils.error(new ErrorResponseDto("Another build of test-name with other parameters is in progress")));
+        assertThat(operationScheduler.cancel(OperationScheduler.OperationType.BUILD, TEST_NAME)).isTrue();
+    }
+
+    @Test
+    void testTenantLimitAppliesOnlyToIdentifiedTenants() {
+        // Arrange
+        AtomicInteger starts = new AtomicInteger();
+        Supplier<Flux<ServerSentEvent<Object>>> operation = () -> Mono.fromRunnable(starts::incrementAndGet)
+                .thenMany(Flux.never());
+
+        // Act
+        Disposable first = operationScheduler.schedule(
+                OperationScheduler.OperationType.BUILD, OperationScheduler.DEFAULT_TENANT, "first-name", "test-parameters", operation)
+                .subscribe();
+        Disposable second = operationScheduler.schedule(
+                OperationScheduler.OperationType.BUILD, OperationScheduler.DEFAULT_TENANT, "second-name", "test-parameters", operation)
+                .subscribe();
+        int defaultTenantStarts = starts.get();
+        first.dispose();
+        second.dispose();
+        operationScheduler.schedule(OperationScheduler.OperationType.BUILD, TEST_TENANT, "first-name", "test-parameters", operation)
+                .subscribe();
+        operationScheduler.schedule(OperationScheduler.OperationType.BUILD, TEST_TENANT, "second-name", "test-parameters", operation)
+                .subscribe();
+
+        // Assert
+        assertThat(defaultTenantStarts).isEqualTo(2);
+        assertThat(starts).hasValue(3);
+        operationScheduler.cancel(OperationScheduler.OperationType.BUILD, "first-name");
+        operationScheduler.cancel(OperationScheduler.OperationType.BUILD, "second-name");
+    }
+}
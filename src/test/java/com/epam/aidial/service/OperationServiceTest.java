@@ -0,0 +1,103 @@
+package com.epam.aidial.service;
+
+import com.epam.aidial.dto.CreateImageResponseDto;
+import com.epam.aidial.dto.ErrorResponseDto;
+import com.epam.aidial.dto.OperationDto;
+import com.epam.aidial.dto.QueuePositionDto;
+import com.epam.aidial.util.SseUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OperationServiceTest {
+    private static final String TEST_NAME = "test-name";
+    private static final String TEST_IMAGE = "test-image";
+
+    private final OperationService operationService = new OperationService(2, 3600, 10);
+
+    @Test
+    void testOperationSucceeds() {
+        // Arrange
+        Sinks.Many<ServerSentEvent<Object>> events = Sinks.many().unicast().onBackpressureBuffer();
+        OperationDto started = operationService.start(OperationScheduler.OperationType.BUILD, TEST_NAME, events.asFlux());
+
+        // Act
+        events.tryEmitNext(SseUtils.queue(new QueuePositionDto(1)));
+        OperationDto running = operationService.get(started.id());
+        events.tryEmitNext(SseUtils.result(new CreateImageResponseDto(TEST_IMAGE)));
+        events.tryEmitComplete();
+
+        // Assert
+        assertThat(running.status()).isEqualTo(OperationDto.Status.RUNNING);
+        OperationDto completed = operationService.get(started.id());
+        assertThat(completed.status()).isEqualTo(OperationDto.Status.SUCCEEDED);
+        assertThat(completed.result()).isEqualTo(new CreateImageResponseDto(TEST_IMAGE));
+        assertThat(completed.completedAt()).isNotNull();
+    }
+
+    @Test
+    void testOperationFails() {
+        // Arrange
+        Flux<ServerSentEvent<Object>> events = Flux.just(SseUtils.error(new ErrorResponseDto("test-error")));
+
+        // Act
+        OperationDto operation = operationService.start(OperationScheduler.OperationType.DEPLOY, TEST_NAME, events);
+
+        // Assert
+        OperationDto completed = operationService.get(operation.id());
+        assertThat(completed.status()).isEqualTo(OperationDto.Status.FAILED);
+        assertThat(completed.error()).isEqualTo("test-error");
+    }
+
+    @Test
+    void testEventsResumeAfterLastEventId() {
+        // Arrange
+        Sinks.Many<ServerSentEvent<Object>> events = Sinks.many().unicast().onBackpressureBuffer();
+        OperationDto operation = operationService.start(OperationScheduler.OperationType.BUILD, TEST_NAME, events.asFlux());
+        events.tryEmitNext(SseUtils.queue(new QueuePositionDto(2)));
+        events.tryEmitNext(SseUtils.queue(new QueuePositionDto(1)));
+
+        // Act
+        Flux<ServerSentEvent<Object>> actual = operationService.events(operation.id(), "1");
+
+        // Assert
+        StepVerifier.create(actual.map(event -> event.id() + ":" + event.event()))
+                .expectNext("2:queue")
+                .then(() -> {
+                    events.tryEmitNext(SseUtils.result(new CreateImageResponseDto(TEST_IMAGE)));
+                    events.tryEmitComplete();
+                })
+                .expectNext("3:result")
+                .verifyComplete();
+    }
+
+    @Test
+    void testUnknownOperationIsNotFound() {
+        // Act & Assert
+        assertThatThrownBy(() -> operationService.get("unknown"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    @Test
+    void testCompletedOperationsAreEvictedWhenFull() {
+        // Arrange
+        OperationDto first = operationService.start(OperationScheduler.OperationType.BUILD, TEST_NAME, Flux.empty());
+        operationService.start(OperationScheduler.OperationType.BUILD, TEST_NAME, Flux.never());
+        operationService.start(OperationScheduler.OperationType.BUILD, TEST_NAME, Flux.never());
+
+        // Act & Assert
+        assertThatThrownBy(() -> operationService.get(first.id()))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> operationService.start(OperationScheduler.OperationType.BUILD, TEST_NAME, Flux.never()))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+    }
+}
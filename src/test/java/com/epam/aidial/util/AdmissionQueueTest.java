@@ -0,0 +1,140 @@
+package com.epam.aidial.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionQueueTest {
+    private static final String TENANT_A = "tenant-a";
+    private static final String TENANT_B = "tenant-b";
+
+    private final List<String> events = new ArrayList<>();
+
+    @Test
+    void testOperationsBeyondLimitWait() {
+        // Arrange
+        AdmissionQueue queue = queue(1, 0, Map.of());
+        Sinks.Empty<Void> first = Sinks.empty();
+
+        // Act
+        submit(queue, TENANT_A, "first", first.asMono());
+        submit(queue, TENANT_A, "second", Mono.never());
+        submit(queue, TENANT_A, "third", Mono.never());
+        first.tryEmitEmpty();
+
+        // Assert
+        assertThat(events).containsExactly("first:started", "second:1", "third:2", "first:done", "third:1", "second:started");
+        assertThat(queue.getRunning()).isEqualTo(1);
+        assertThat(queue.getQueued()).isEqualTo(1);
+    }
+
+    @Test
+    void testTenantWithoutRunningOperationsGoesFirst() {
+        // Arrange
+        AdmissionQueue queue = queue(1, 0, Map.of());
+        Sinks.Empty<Void> first = Sinks.empty();
+        submit(queue, TENANT_A, "first", first.asMono());
+        submit(queue, TENANT_A, "second", Mono.never());
+
+        // Act
+        submit(queue, TENANT_B, "third", Mono.never());
+        first.tryEmitEmpty();
+
+        // Assert
+        assertThat(events).containsExactly("first:started", "second:1", "third:1", "second:2", "first:done", "second:1", "third:started");
+    }
+
+    @Test
+    void testTenantLimitLetsOtherTenantsRun() {
+        // Arrange
+        AdmissionQueue queue = queue(3, 1, Map.of());
+
+        // Act
+        submit(queue, TENANT_A, "first", Mono.never());
+        submit(queue, TENANT_A, "second", Mono.never());
+        submit(queue, TENANT_B, "third", Mono.never());
+
+        // Assert
+        assertThat(events).containsExactly("first:started", "second:1", "third:started");
+        assertThat(queue.getRunning()).isEqualTo(2);
+        assertThat(queue.getQueued()).isEqualTo(1);
+    }
+
+    @Test
+    void testTenantsAreAdmittedByWeight() {
+        // Arrange
+        AdmissionQueue queue = queue(1, 0, Map.of(TENANT_A, 2));
+        Sinks.Empty<Void> blocker = Sinks.empty();
+        submit(queue, TENANT_B, "blocker", blocker.asMono());
+        for (int i = 1; i <= 3; ++i) {
+            submit(queue, TENANT_A, "a" + i, Mono.empty());
+            submit(queue, TENANT_B, "b" + i, Mono.empty());
+        }
+        events.clear();
+
+        // Act
+        blocker.tryEmitEmpty();
+
+        // Assert
+        assertThat(events.stream().filter(event -> event.endsWith(":started")))
+                .containsExactly("a1:started", "a2:started", "b1:started", "a3:started", "b2:started", "b3:started");
+    }
+
+    @Test
+    void testCancelledOperationLeavesQueue() {
+        // Arrange
+        AdmissionQueue queue = queue(1, 0, Map.of());
+        Sinks.Empty<Void> first = Sinks.empty();
+        submit(queue, TENANT_A, "first", first.asMono());
+        Disposable second = submit(queue, TENANT_A, "second", Mono.never());
+        submit(queue, TENANT_A, "third", Mono.never());
+
+        // Act
+        second.dispose();
+        first.tryEmitEmpty();
+
+        // Assert
+        assertThat(events).containsExactly("first:started", "second:1", "third:2", "third:1", "first:done", "third:started");
+    }
+
+    @Test
+    void testCancelledOperationReleasesSlot() {
+        // Arrange
+        AdmissionQueue queue = queue(1, 0, Map.of());
+        Disposable first = submit(queue, TENANT_A, "first", Mono.never());
+        submit(queue, TENANT_B, "second", Mono.never());
+
+        // Act
+        first.dispose();
+
+        // Assert
+        assertThat(events).containsExactly("first:started", "second:1", "second:started");
+        assertThat(queue.getRunning()).isEqualTo(1);
+        assertThat(queue.getQueued()).isZero();
+    }
+
+    /**
+     * Submits an operation running until the completion signal, recording when it starts and ends.
+     */
+    private Disposable submit(AdmissionQueue queue, String tenant, String name, Mono<Void> completion) {
+        Flux<String> operation = Mono.fromRunnable(() -> events.add(name + ":started"))
+                .then(completion)
+                .then(Mono.just(name + ":done"))
+                .flux();
+        return queue.submit(tenant, operation, position -> name + ":" + position)
+                .subscribe(events::add);
+    }
+
+    private static AdmissionQueue queue(int maxRunning, int maxRunningPerTenant, Map<String, Integer> weights) {
+        return new AdmissionQueue("test", maxRunning, tenant -> maxRunningPerTenant, tenant -> weights.getOrDefault(tenant, 1), new SimpleMeterRegistry());
+    }
+}
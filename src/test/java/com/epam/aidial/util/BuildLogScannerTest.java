@@ -0,0 +1,59 @@
+package com.epam.aidial.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BuildLogScannerTest {
+    private static final String MARKER = "Error: ";
+
+    @Test
+    void testTailKeepsLastLines() {
+        BuildLogScanner scanner = new BuildLogScanner(MARKER, 2, 100);
+
+        scanner.accept("a").accept("b").accept("").accept("c");
+
+        assertThat(scanner.getMarkedText()).isNull();
+        assertThat(scanner.getTail()).isEqualTo("b\n\nc\n");
+    }
+
+    @Test
+    void testTailKeepsMaxChars() {
+        BuildLogScanner scanner = new BuildLogScanner(MARKER, 10, 8);
+
+        scanner.accept("abc").accept("def").accept("ghi");
+
+        assertThat(scanner.getTail()).isEqualTo("def\nghi\n");
+    }
+
+    @Test
+    void testLongLineIsDroppedFromTail() {
+        BuildLogScanner scanner = new BuildLogScanner(MARKER, 10, 8);
+
+        scanner.accept("abc").accept("x".repeat(1000));
+
+        assertThat(scanner.getTail()).isEmpty();
+
+        scanner.accept("def");
+
+        assertThat(scanner.getTail()).isEqualTo("def\n");
+    }
+
+    @Test
+    void testMarkedTextIsCollectedToTheEnd() {
+        BuildLogScanner scanner = new BuildLogScanner(MARKER, 10, 100);
+
+        scanner.accept("a").accept("x Error: first").accept("second");
+
+        assertThat(scanner.getMarkedText()).isEqualTo("first\nsecond");
+    }
+
+    @Test
+    void testMarkedTextIsTruncated() {
+        BuildLogScanner scanner = new BuildLogScanner(MARKER, 10, 8);
+
+        scanner.accept("Error: first").accept("second");
+
+        assertThat(scanner.getMarkedText()).isEqualTo("first\nse");
+    }
+}
@@ -0,0 +1,116 @@
+package com.epam.aidial.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+    private VirtualTimeScheduler scheduler;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = VirtualTimeScheduler.getOrSet();
+        circuitBreaker = new CircuitBreaker("Test service", 2, Duration.ofSeconds(10),
+                error -> error instanceof IllegalArgumentException, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    void testOpensAfterFailures() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Mono<String> failure = Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.error(new IllegalArgumentException("failure"));
+        });
+
+        // Act
+        circuitBreaker.protect(failure).onErrorResume(e -> Mono.empty()).block();
+        circuitBreaker.protect(failure).onErrorResume(e -> Mono.empty()).block();
+
+        // Assert
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        StepVerifier.create(circuitBreaker.protect(failure))
+                .expectErrorMessage("Test service is temporarily unavailable")
+                .verify();
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void testIgnoredErrorsDontOpen() {
+        // Arrange
+        Mono<String> failure = Mono.error(new IllegalStateException("not found"));
+
+        // Act
+        circuitBreaker.protect(failure).onErrorResume(e -> Mono.empty()).block();
+        circuitBreaker.protect(failure).onErrorResume(e -> Mono.empty()).block();
+
+        // Assert
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void testClosesAfterSuccessfulTrial() {
+        // Arrange
+        Mono<String> failure = Mono.error(new IllegalArgumentException("failure"));
+        circuitBreaker.protect(failure).onErrorResume(e -> Mono.empty()).block();
+        circuitBreaker.protect(failure).onErrorResume(e -> Mono.empty()).block();
+
+        // Act
+        scheduler.advanceTimeBy(Duration.ofSeconds(10));
+
+        // Assert
+        StepVerifier.create(circuitBreaker.protect(Mono.just("result")))
+                .expectNext("result")
+                .verifyComplete();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void testIgnoredErrorDuringTrialKeepsHalfOpen() {
+        // Arrange
+        Mono<String> failure = Mono.error(new IllegalArgumentException("failure"));
+        circuitBreaker.protect(failure).onErrorResume(e -> Mono.empty()).block();
+        circuitBreaker.protect(failure).onErrorResume(e -> Mono.empty()).block();
+        scheduler.advanceTimeBy(Duration.ofSeconds(10));
+
+        // Act
+        circuitBreaker.protect(Mono.error(new IllegalStateException("not found"))).onErrorResume(e -> Mono.empty()).block();
+
+        // Assert
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        StepVerifier.create(circuitBreaker.protect(Mono.just("result")))
+                .expectNext("result")
+                .verifyComplete();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void testReopensAfterFailedTrial() {
+        // Arrange
+        Mono<String> failure = Mono.error(new IllegalArgumentException("failure"));
+        circuitBreaker.protect(failure).onErrorResume(e -> Mono.empty()).block();
+        circuitBreaker.protect(failure).onErrorResume(e -> Mono.empty()).block();
+        scheduler.advanceTimeBy(Duration.ofSeconds(10));
+
+        // Act
+        circuitBreaker.protect(failure).onErrorResume(e -> Mono.empty()).block();
+
+        // Assert
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+}
@@ -0,0 +1,70 @@
+package com.epam.aidial.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiringCacheTest {
+    private VirtualTimeScheduler scheduler;
+    private ExpiringCache<String, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = VirtualTimeScheduler.getOrSet();
+        cache = new ExpiringCache<>(Duration.ofSeconds(10), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    void testEntryExpires() {
+        // Arrange
+        cache.put("key", "value");
+
+        // Act
+        scheduler.advanceTimeBy(Duration.ofSeconds(9));
+        String beforeExpiration = cache.get("key");
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        String afterExpiration = cache.get("key");
+
+        // Assert
+        assertThat(beforeExpiration).isEqualTo("value");
+        assertThat(afterExpiration).isNull();
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        // Arrange
+        cache.put("first", "1");
+        cache.put("second", "2");
+        cache.get("first");
+
+        // Act
+        cache.put("third", "3");
+
+        // Assert
+        assertThat(cache.get("first")).isEqualTo("1");
+        assertThat(cache.get("second")).isNull();
+        assertThat(cache.get("third")).isEqualTo("3");
+    }
+
+    @Test
+    void testRemove() {
+        // Arrange
+        cache.put("key", "value");
+
+        // Act
+        cache.remove("key");
+
+        // Assert
+        assertThat(cache.get("key")).isNull();
+    }
+}
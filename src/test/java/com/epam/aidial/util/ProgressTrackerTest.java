@@ -0,0 +1,49 @@
+package com.epam.aidial.util;
+
+import com.epam.aidial.dto.OperationProgressDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProgressTrackerTest {
+    private final List<OperationProgressDto> events = new ArrayList<>();
+    private final ProgressTracker tracker = new ProgressTracker(events::add);
+
+    @Test
+    void testPhasesAreReportedOnceInOrder() {
+        // Arrange
+        Instant now = Instant.now();
+
+        // Act
+        tracker.report(Map.of(
+                OperationProgressDto.Phase.BUILD_STARTED, now.plusSeconds(2),
+                OperationProgressDto.Phase.POD_SCHEDULED, now.plusSeconds(3)));
+        tracker.report(OperationProgressDto.Phase.POD_SCHEDULED, now.plusSeconds(5));
+        tracker.report(OperationProgressDto.Phase.IMAGE_PUSHED, now.plusSeconds(10));
+
+        // Assert
+        assertThat(events)
+                .extracting(OperationProgressDto::phase)
+                .containsExactly(
+                        OperationProgressDto.Phase.POD_SCHEDULED,
+                        OperationProgressDto.Phase.BUILD_STARTED,
+                        OperationProgressDto.Phase.IMAGE_PUSHED);
+        assertThat(events.get(0).timestamp()).isEqualTo(now.plusSeconds(3));
+    }
+
+    @Test
+    void testElapsedTimeIsNotNegative() {
+        // Act
+        tracker.report(OperationProgressDto.Phase.JOB_CREATED, Instant.now().minusSeconds(1));
+
+        // Assert
+        assertThat(events).singleElement()
+                .extracting(OperationProgressDto::elapsedMs)
+                .isEqualTo(0L);
+    }
+}
@@ -0,0 +1,50 @@
+package com.epam.aidial.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateCapTest {
+    private VirtualTimeScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = VirtualTimeScheduler.getOrSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    void testEventsBeyondCapAreRejectedUntilNextSecond() {
+        // Arrange
+        RateCap rateCap = new RateCap(2);
+
+        // Act & Assert
+        assertThat(rateCap.tryAcquire()).isTrue();
+        assertThat(rateCap.tryAcquire()).isTrue();
+        assertThat(rateCap.tryAcquire()).isFalse();
+        scheduler.advanceTimeBy(Duration.ofMillis(999));
+        assertThat(rateCap.tryAcquire()).isFalse();
+        scheduler.advanceTimeBy(Duration.ofMillis(1));
+        assertThat(rateCap.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void testNonPositiveCapIsDisabled() {
+        // Arrange
+        RateCap rateCap = new RateCap(0);
+
+        // Act & Assert
+        for (int i = 0; i < 100; ++i) {
+            assertThat(rateCap.tryAcquire()).isTrue();
+        }
+    }
+}
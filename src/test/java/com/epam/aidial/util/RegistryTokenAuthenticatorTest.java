@@ -0,0 +1,122 @@
+package com.epam.aidial.util;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RegistryTokenAuthenticatorTest {
+    private static final String MANIFEST_PATH = "/v2/app-test/manifests/latest";
+
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        OkHttpClient tokenClient = new OkHttpClient();
+        RegistryTokenAuthenticator authenticator = new RegistryTokenAuthenticator(tokenClient, "user", "password");
+        client = tokenClient.newBuilder()
+                .authenticator(authenticator)
+                .addInterceptor(authenticator)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void testTokenIsRequestedAndCached() throws Exception {
+        // Arrange
+        server.enqueue(challenge());
+        server.enqueue(new MockResponse().setBody("{\"token\": \"test-token\", \"expires_in\": 300}"));
+        server.enqueue(new MockResponse().setHeader("Docker-Content-Digest", "sha256:1"));
+        server.enqueue(new MockResponse().setHeader("Docker-Content-Digest", "sha256:1"));
+
+        // Act
+        int first = head();
+        int second = head();
+
+        // Assert
+        assertThat(first).isEqualTo(200);
+        assertThat(second).isEqualTo(200);
+        assertThat(server.getRequestCount()).isEqualTo(4);
+        RecordedRequest challenged = server.takeRequest();
+        assertThat(challenged.getHeader("Authorization")).isNull();
+        RecordedRequest token = server.takeRequest();
+        assertThat(token.getRequestUrl().queryParameter("service")).isEqualTo("registry");
+        assertThat(token.getRequestUrl().queryParameter("scope")).isEqualTo("repository:app-test:pull");
+        assertThat(token.getHeader("Authorization")).isEqualTo("Basic dXNlcjpwYXNzd29yZA==");
+        assertThat(server.takeRequest().getHeader("Authorization")).isEqualTo("Bearer test-token");
+        assertThat(server.takeRequest().getHeader("Authorization")).isEqualTo("Bearer test-token");
+    }
+
+    @Test
+    void testRejectedCachedTokenIsRenewed() throws Exception {
+        // Arrange
+        server.enqueue(challenge());
+        server.enqueue(new MockResponse().setBody("{\"token\": \"expired-token\", \"expires_in\": 300}"));
+        server.enqueue(new MockResponse().setHeader("Docker-Content-Digest", "sha256:1"));
+        server.enqueue(challenge());
+        server.enqueue(new MockResponse().setBody("{\"token\": \"test-token\", \"expires_in\": 300}"));
+        server.enqueue(new MockResponse().setHeader("Docker-Content-Digest", "sha256:1"));
+        head();
+
+        // Act
+        int actual = head();
+
+        // Assert
+        assertThat(actual).isEqualTo(200);
+        assertThat(server.getRequestCount()).isEqualTo(6);
+        for (int i = 0; i < 3; ++i) {
+            server.takeRequest();
+        }
+        assertThat(server.takeRequest().getHeader("Authorization")).isEqualTo("Bearer expired-token");
+        assertThat(server.takeRequest().getPath()).startsWith("/token");
+        assertThat(server.takeRequest().getHeader("Authorization")).isEqualTo("Bearer test-token");
+    }
+
+    @Test
+    void testRejectedTokenIsNotRetried() throws Exception {
+        // Arrange
+        server.enqueue(challenge());
+        server.enqueue(new MockResponse().setBody("{\"access_token\": \"test-token\"}"));
+        server.enqueue(challenge());
+
+        // Act
+        int actual = head();
+
+        // Assert
+        assertThat(actual).isEqualTo(401);
+        assertThat(server.getRequestCount()).isEqualTo(3);
+    }
+
+    private MockResponse challenge() {
+        return new MockResponse()
+                .setResponseCode(401)
+                .setHeader("WWW-Authenticate", "Bearer realm=\"%s\",service=\"registry\",scope=\"repository:app-test:pull\""
+                        .formatted(server.url("/token")));
+    }
+
+    private int head() throws IOException {
+        Request request = new Request.Builder()
+                .head()
+                .url(server.url(MANIFEST_PATH))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            return response.code();
+        }
+    }
+}
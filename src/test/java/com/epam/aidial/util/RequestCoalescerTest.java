@@ -0,0 +1,69 @@
+package com.epam.aidial.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCoalescerTest {
+    private static final String TEST_KEY = "test-key";
+
+    @Test
+    void testConcurrentRequestsShareResult() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(Duration.ZERO);
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+
+        Mono<String> first = coalescer.execute(TEST_KEY, () -> upstream.asMono().doOnSubscribe(s -> calls.incrementAndGet()));
+        Mono<String> second = coalescer.execute(TEST_KEY, () -> upstream.asMono().doOnSubscribe(s -> calls.incrementAndGet()));
+
+        StepVerifier.create(first.zipWith(second))
+                .then(() -> upstream.tryEmitValue("result"))
+                .assertNext(results -> assertThat(results.getT1()).isEqualTo(results.getT2()).isEqualTo("result"))
+                .verifyComplete();
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void testResultIsSharedWithinWindow() {
+        RequestCoalescer<String, Integer> coalescer = new RequestCoalescer<>(Duration.ofMinutes(1));
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.create(coalescer.execute(TEST_KEY, () -> Mono.fromCallable(calls::incrementAndGet)))
+                .expectNext(1)
+                .verifyComplete();
+        StepVerifier.create(coalescer.execute(TEST_KEY, () -> Mono.fromCallable(calls::incrementAndGet)))
+                .expectNext(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void testRequestIsRepeatedAfterWindow() {
+        RequestCoalescer<String, Integer> coalescer = new RequestCoalescer<>(Duration.ZERO);
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.create(coalescer.execute(TEST_KEY, () -> Mono.fromCallable(calls::incrementAndGet)))
+                .expectNext(1)
+                .verifyComplete();
+        StepVerifier.create(coalescer.execute(TEST_KEY, () -> Mono.fromCallable(calls::incrementAndGet)))
+                .expectNext(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void testErrorIsNotShared() {
+        RequestCoalescer<String, Integer> coalescer = new RequestCoalescer<>(Duration.ofMinutes(1));
+
+        StepVerifier.create(coalescer.execute(TEST_KEY, () -> Mono.error(new IllegalStateException("error"))))
+                .expectErrorMessage("error")
+                .verify();
+        StepVerifier.create(coalescer.execute(TEST_KEY, () -> Mono.just(1)))
+                .expectNext(1)
+                .verifyComplete();
+    }
+}
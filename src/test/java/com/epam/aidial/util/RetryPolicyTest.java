@@ -0,0 +1,121 @@
+package com.epam.aidial.util;
+
+import io.kubernetes.client.openapi.ApiException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryPolicyTest {
+    private final RetryPolicy retryPolicy = new RetryPolicy(2, Duration.ofMillis(100), Duration.ofSeconds(5));
+
+    @Test
+    void testTransientErrorIsRetried() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Mono<String> call = Mono.defer(() -> calls.incrementAndGet() < 3
+                ? Mono.error(new ApiException(503, "Service Unavailable"))
+                : Mono.just("result"));
+
+        // Act
+        Mono<String> actual = call.retryWhen(retryPolicy.retry(RetryPolicy::isTransient));
+
+        // Assert
+        StepVerifier.withVirtualTime(() -> actual)
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNext("result")
+                .verifyComplete();
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void testRetriesAreLimited() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Mono<String> call = Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.error(new ApiException(new IOException("Connection reset")));
+        });
+
+        // Act
+        Mono<String> actual = call.retryWhen(retryPolicy.retry(RetryPolicy::isTransient));
+
+        // Assert
+        StepVerifier.withVirtualTime(() -> actual)
+                .thenAwait(Duration.ofSeconds(1))
+                .expectErrorMatches(error -> error.getCause() instanceof IOException)
+                .verify();
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void testClientErrorIsNotRetried() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Mono<String> call = Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.error(new ApiException(409, "Conflict"));
+        });
+
+        // Act
+        Mono<String> actual = call.retryWhen(retryPolicy.retry(RetryPolicy::isTransient));
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectErrorMatches(error -> error instanceof ApiException apiException && apiException.getCode() == 409)
+                .verify();
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void testRetryAfterIsRespected() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Mono<String> call = Mono.defer(() -> calls.incrementAndGet() < 2
+                ? Mono.error(new ApiException(429, Map.of("Retry-After", List.of("3")), "Too Many Requests"))
+                : Mono.just("result"));
+
+        // Act
+        Mono<String> actual = call.retryWhen(retryPolicy.retry(RetryPolicy::isThrottled));
+
+        // Assert
+        StepVerifier.withVirtualTime(() -> actual)
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(2999))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNext("result")
+                .verifyComplete();
+    }
+
+    @Test
+    void testLongRetryAfterIsNotWaited() {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "60");
+        Mono<String> call = Mono.error(new HttpResponseException(503, "Service Unavailable", headers));
+
+        // Act
+        Mono<String> actual = call.retryWhen(retryPolicy.retry(RetryPolicy::isTransient));
+
+        // Assert
+        StepVerifier.create(actual)
+                .expectError(HttpResponseException.class)
+                .verify();
+    }
+
+    @Test
+    void testParseRetryAfter() {
+        assertThat(RetryPolicy.parseRetryAfter("120")).isEqualTo(Duration.ofMinutes(2));
+        assertThat(RetryPolicy.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT")).isEqualTo(Duration.ZERO);
+        assertThat(RetryPolicy.parseRetryAfter("invalid")).isNull();
+        assertThat(RetryPolicy.parseRetryAfter(null)).isNull();
+    }
+}
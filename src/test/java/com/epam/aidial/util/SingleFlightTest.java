@@ -0,0 +1,114 @@
+package com.epam.aidial.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTest {
+    private static final String TEST_KEY = "test-key";
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void testConcurrentCallsShareOperation() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+
+        // Act
+        Flux<String> first = singleFlight.execute(TEST_KEY, () -> upstream.asMono().flux().doOnSubscribe(s -> calls.incrementAndGet()));
+        Flux<String> second = singleFlight.execute(TEST_KEY, () -> upstream.asMono().flux().doOnSubscribe(s -> calls.incrementAndGet()));
+
+        // Assert
+        StepVerifier.create(first.zipWith(second))
+                .then(() -> upstream.tryEmitValue("result"))
+                .assertNext(results -> assertThat(results.getT1()).isEqualTo(results.getT2()).isEqualTo("result"))
+                .verifyComplete();
+        assertThat(calls).hasValue(1);
+        assertThat(singleFlight.size()).isZero();
+    }
+
+    @Test
+    void testLateCallReceivesLatestEvent() {
+        // Arrange
+        Sinks.Many<String> upstream = Sinks.many().multicast().onBackpressureBuffer();
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        singleFlight.execute(TEST_KEY, upstream::asFlux).subscribe(first::add);
+        upstream.tryEmitNext("first");
+        upstream.tryEmitNext("second");
+
+        // Act
+        singleFlight.execute(TEST_KEY, Flux::empty).subscribe(second::add);
+        upstream.tryEmitNext("third");
+        upstream.tryEmitComplete();
+
+        // Assert
+        assertThat(first).containsExactly("first", "second", "third");
+        assertThat(second).containsExactly("second", "third");
+    }
+
+    @Test
+    void testOperationIsCancelledWithLastCall() {
+        // Arrange
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flux<String> operation = Mono.<String>never().flux().doOnCancel(() -> cancelled.set(true));
+        Disposable first = singleFlight.execute(TEST_KEY, () -> operation).subscribe();
+        Disposable second = singleFlight.execute(TEST_KEY, () -> operation).subscribe();
+
+        // Act
+        second.dispose();
+        boolean cancelledWithFirstCall = cancelled.get();
+        first.dispose();
+
+        // Assert
+        assertThat(cancelledWithFirstCall).isFalse();
+        assertThat(cancelled).isTrue();
+        assertThat(singleFlight.size()).isZero();
+    }
+
+    @Test
+    void testOperationIsRepeatedAfterCompletion() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act & Assert
+        StepVerifier.create(singleFlight.execute(TEST_KEY, () -> Mono.fromCallable(() -> "call" + calls.incrementAndGet()).flux()))
+                .expectNext("call1")
+                .verifyComplete();
+        StepVerifier.create(singleFlight.execute(TEST_KEY, () -> Mono.fromCallable(() -> "call" + calls.incrementAndGet()).flux()))
+                .expectNext("call2")
+                .verifyComplete();
+    }
+
+    @Test
+    void testCallWithOtherParametersGetsConflict() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+        Flux<String> first = singleFlight.execute(TEST_KEY, "first-parameters",
+                () -> upstream.asMono().flux().doOnSubscribe(s -> calls.incrementAndGet()), () -> Flux.just("conflict"));
+        Disposable subscription = first.subscribe();
+
+        // Act
+        Flux<String> second = singleFlight.execute(TEST_KEY, "second-parameters",
+                () -> upstream.asMono().flux().doOnSubscribe(s -> calls.incrementAndGet()), () -> Flux.just("conflict"));
+
+        // Assert
+        StepVerifier.create(second)
+                .expectNext("conflict")
+                .verifyComplete();
+        assertThat(calls).hasValue(1);
+        subscription.dispose();
+    }
+}
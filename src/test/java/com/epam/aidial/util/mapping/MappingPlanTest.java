@@ -0,0 +1,91 @@
+package com.epam.aidial.util.mapping;
+
+import io.kubernetes.client.openapi.models.V1Container;
+import io.kubernetes.client.openapi.models.V1EnvVar;
+import io.kubernetes.client.openapi.models.V1PodSpec;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.epam.aidial.util.mapping.Mappers.CONTAINER_ENV_FIELD;
+import static com.epam.aidial.util.mapping.Mappers.CONTAINER_NAME;
+import static com.epam.aidial.util.mapping.Mappers.ENV_VAR_NAME;
+import static com.epam.aidial.util.mapping.Mappers.POD_CONTAINERS_FIELD;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappingPlanTest {
+    @Test
+    void testApplyFollowsTemplatePositions() {
+        // Arrange
+        MappingPlan<V1PodSpec, V1Container> plan = MappingPlan.compile(podSpec())
+                .getList(POD_CONTAINERS_FIELD, CONTAINER_NAME)
+                .get("second");
+        V1PodSpec copy = podSpec();
+
+        // Act
+        V1Container actual = plan.apply(copy).data();
+
+        // Assert
+        assertThat(actual).isSameAs(copy.getContainers().get(1));
+    }
+
+    @Test
+    void testApplyFindsMovedItem() {
+        // Arrange
+        MappingPlan<V1PodSpec, V1Container> plan = MappingPlan.compile(podSpec())
+                .getList(POD_CONTAINERS_FIELD, CONTAINER_NAME)
+                .get("second");
+        V1PodSpec copy = podSpec();
+        copy.getContainers().remove(0);
+
+        // Act
+        V1Container actual = plan.apply(copy).data();
+
+        // Assert
+        assertThat(actual).isSameAs(copy.getContainers().get(0));
+    }
+
+    @Test
+    void testApplyAddsMissingItems() {
+        // Arrange
+        ListPlan<V1PodSpec, V1EnvVar> plan = MappingPlan.compile(podSpec())
+                .getList(POD_CONTAINERS_FIELD, CONTAINER_NAME)
+                .get("third")
+                .getList(CONTAINER_ENV_FIELD, ENV_VAR_NAME);
+        V1PodSpec copy = podSpec();
+
+        // Act
+        plan.get(copy, "NAME").data().setValue("value");
+
+        // Assert
+        assertThat(copy.getContainers()).hasSize(3);
+        assertThat(copy.getContainers().get(2).getName()).isEqualTo("third");
+        assertThat(copy.getContainers().get(2).getEnv())
+                .containsExactly(new V1EnvVar().name("NAME").value("value"));
+    }
+
+    @Test
+    void testGetByNameUsesTemplateSlots() {
+        // Arrange
+        ListPlan<V1PodSpec, V1EnvVar> plan = MappingPlan.compile(podSpec())
+                .getList(POD_CONTAINERS_FIELD, CONTAINER_NAME)
+                .get("first")
+                .getList(CONTAINER_ENV_FIELD, ENV_VAR_NAME);
+        V1PodSpec copy = podSpec();
+
+        // Act
+        plan.get(copy, "B").data().setValue("new");
+
+        // Assert
+        assertThat(copy.getContainers().get(0).getEnv())
+                .containsExactly(new V1EnvVar().name("A").value("a"), new V1EnvVar().name("B").value("new"));
+    }
+
+    private static V1PodSpec podSpec() {
+        V1Container first = new V1Container().name("first")
+                .env(new ArrayList<>(List.of(new V1EnvVar().name("A").value("a"), new V1EnvVar().name("B").value("b"))));
+        V1Container second = new V1Container().name("second");
+        return new V1PodSpec().containers(new ArrayList<>(List.of(first, second)));
+    }
+}